@@ -0,0 +1,230 @@
+package com.sharma.study.data_structures.trees;
+
+import java.util.*;
+
+/**
+ * Binary-lifting table over the parent links of a {@link BinaryTree}: row {@code k} holds the {@code 2^k}-th ancestor
+ * of every node id, so ancestor, depth, distance and LCA queries cost O(log n). Queries by data point find the node
+ * through a hash map kept by the index, so they cost the same whether or not the tree itself is indexed.
+ * Leaves added through {@link #add(Object)} extend the table in O(log n); any other change to the tree requires a
+ * fresh index.
+ * @param <T> type of data stored in {@link BinaryTree} nodes.
+ */
+public class AncestorIndex<T> {
+    private static final int NONE = -1;
+    private final BinaryTree<T> tree;
+    private BinaryTree.BinaryTreeNode<T>[] nodes;   // node id -> node.
+    private int[] depth;                            // node id -> number of edges up to the root.
+    private int[][] up;                             // up[k][id] -> id of the 2^k-th ancestor, or NONE.
+    private int count;
+    private final NodeIds ids = new NodeIds();
+    private final Map<T, Integer> dataIds;          // data point -> id of its first indexed node.
+
+    public AncestorIndex(BinaryTree<T> tree) {
+        this.tree = tree;
+        this.dataIds = new HashMap<>(Math.max(16, (int) (tree.size() / 0.75f) + 1));
+        allocate(Math.max(16, tree.size()));
+        final var queue = new ArrayDeque<BinaryTree.BinaryTreeNode<T>>();
+        if (tree.root() != null) queue.add(tree.root());
+        while (!queue.isEmpty()) {                  // breadth-first, so every parent gets its id before its children.
+            final var n = queue.poll();
+            append(n);
+            if (n.left  != null) queue.add(n.left);
+            if (n.right != null) queue.add(n.right);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        nodes = (BinaryTree.BinaryTreeNode<T>[]) new BinaryTree.BinaryTreeNode<?>[capacity];
+        depth = new int[capacity];
+        up    = new int[levels(capacity)][capacity];
+    }
+
+    /**
+     * A depth is always below the node count, so {@code levels} rows reach any ancestor of up to {@code capacity} nodes.
+     */
+    private static int levels(int capacity) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(capacity - 1));
+    }
+
+    private void grow() {
+        final int capacity = nodes.length << 1;
+        nodes = Arrays.copyOf(nodes, capacity);
+        depth = Arrays.copyOf(depth, capacity);
+        final int oldLevels = up.length;
+        up = Arrays.copyOf(up, levels(capacity));
+        for (int k = 0; k < up.length; k++) {
+            if (k < oldLevels) up[k] = Arrays.copyOf(up[k], capacity);
+            else {
+                up[k] = new int[capacity];
+                for (int id = 0; id < count; id++) up[k][id] = lift(up[k - 1], id);
+            }
+        }
+    }
+
+    private static int lift(int[] row, int id) {
+        final int half = row[id];
+        return half == NONE ? NONE : row[half];
+    }
+
+    private void append(BinaryTree.BinaryTreeNode<T> n) {
+        if (count == nodes.length) grow();
+        final int id = count++;
+        final int parent = n.parent == null ? NONE : ids.get(n.parent);
+        nodes[id] = n;
+        depth[id] = parent == NONE ? 0 : depth[parent] + 1;
+        up[0][id] = parent;
+        for (int k = 1; k < up.length; k++) up[k][id] = lift(up[k - 1], id);
+        ids.put(n, id);
+        dataIds.putIfAbsent(n.data, id);
+    }
+
+    /**
+     * Adds the data point to the indexed tree and extends the table with the new leaf, without a rebuild.
+     */
+    public void add(T data) {
+        append(tree.addNode(data));
+    }
+
+    /**
+     * @return the number of indexed nodes.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the id of the first indexed node holding {@code data}, breadth-first and then in order of addition, or
+     * {@code -1} if there is none.
+     */
+    public int id(T data) {
+        return dataIds.getOrDefault(data, NONE);
+    }
+
+    public T value(int id) {
+        return nodes[id].data;
+    }
+
+    /**
+     * Methods taking node ids are named apart from their data point counterparts, so that an
+     * {@code AncestorIndex<Integer>} never resolves a data point to the id overload.
+     */
+    public int depthAt(int id) {
+        return depth[id];
+    }
+
+    /**
+     * @return the id of the {@code k}-th ancestor of node {@code id}, or {@code -1} if the root is closer than that.
+     */
+    public int ancestor(int id, int k) {
+        if (k < 0 || k > depth[id]) return NONE;
+        for (int b = 0; k != 0; b++, k >>>= 1) {
+            if ((k & 1) != 0) id = up[b][id];
+        }
+        return id;
+    }
+
+    public int lca(int u, int v) {
+        if (depth[u] < depth[v]) {
+            final int t = u;
+            u = v;
+            v = t;
+        }
+        u = ancestor(u, depth[u] - depth[v]);
+        if (u == v) return u;
+        for (int k = up.length - 1; k >= 0; k--) {
+            if (up[k][u] != up[k][v]) {
+                u = up[k][u];
+                v = up[k][v];
+            }
+        }
+        return up[0][u];
+    }
+
+    /**
+     * @return the number of edges on the path between nodes {@code u} and {@code v}.
+     */
+    public int distanceBetween(int u, int v) {
+        return depth[u] + depth[v] - 2 * depth[lca(u, v)];
+    }
+
+    /**
+     * @return the depth of the node holding {@code data}, or {@code -1} if there is none.
+     */
+    public int depth(T data) {
+        final int id = id(data);
+        return id == NONE ? NONE : depth[id];
+    }
+
+    /**
+     * @return the data point of the {@code k}-th ancestor of the node holding {@code data}, or {@code null} if there is none.
+     */
+    public T kthAncestor(T data, int k) {
+        final int id = id(data);
+        final int ancestor = id == NONE ? NONE : ancestor(id, k);
+        return ancestor == NONE ? null : value(ancestor);
+    }
+
+    /**
+     * @return the data point associated with the lowest common ancestor, or {@code null} if either does not exist.
+     */
+    public T findLCA(T c0, T c1) {
+        final int u = id(c0), v = id(c1);
+        return u == NONE || v == NONE ? null : value(lca(u, v));
+    }
+
+    /**
+     * @return the number of edges between the nodes holding {@code c0} and {@code c1}, or {@code -1} if either does not exist.
+     */
+    public int distance(T c0, T c1) {
+        final int u = id(c0), v = id(c1);
+        return u == NONE || v == NONE ? NONE : distanceBetween(u, v);
+    }
+
+    /**
+     * Open-addressing (linear probing) map from node identity to node id, kept in flat arrays.
+     */
+    private static final class NodeIds {
+        private Object[] keys = new Object[16];
+        private int[] values  = new int[16];
+        private int count;
+
+        private static int hash(Object key) {
+            final int h = System.identityHashCode(key) * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private int get(Object key) {
+            final int mask = keys.length - 1;
+            for (int i = hash(key) & mask; keys[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+            return NONE;
+        }
+
+        private void put(Object key, int value) {
+            if (2 * (count + 1) > keys.length) resize();
+            insert(key, value);
+            count++;
+        }
+
+        private void insert(Object key, int value) {
+            final int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i]   = key;
+            values[i] = value;
+        }
+
+        private void resize() {
+            final var oldKeys   = keys;
+            final var oldValues = values;
+            keys   = new Object[oldKeys.length << 1];
+            values = new int[oldKeys.length << 1];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
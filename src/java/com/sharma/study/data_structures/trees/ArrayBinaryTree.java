@@ -0,0 +1,175 @@
+package com.sharma.study.data_structures.trees;
+
+import java.util.*;
+
+/**
+ * Balanced binary tree stored implicitly in a single array, with no per-node objects.
+ * The tree is kept complete: the children of slot {@code i} live in slots {@code 2i + 1} and {@code 2i + 2},
+ * and its parent in slot {@code (i - 1) / 2}, so every level but the last is full.
+ * @param <T> type of data stored in {@link ArrayBinaryTree} slots.
+ */
+public class ArrayBinaryTree<T> implements Tree<T> {
+    private static final int INITIAL_CAPACITY = 16;
+    private Object[] data;
+    private int size;
+
+    public ArrayBinaryTree() {
+        this.data = new Object[INITIAL_CAPACITY];
+    }
+
+    public ArrayBinaryTree(Collection<T> collection) {
+        this.data = collection.toArray();
+        this.size = data.length;
+        if (data.length == 0) data = new Object[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return the number of nodes in this tree.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Node is appended to the first free slot of the last level, which keeps the tree complete.
+     * @param data inserts a new node with the specified data point into this tree.
+     */
+    @Override
+    public void add(T data) {
+        if (size == this.data.length) this.data = Arrays.copyOf(this.data, Math.max(INITIAL_CAPACITY, size + (size >> 1)));
+        this.data[size++] = data;
+    }
+
+    /**
+     * @return {@code true} if this tree contains no nodes, {@code false} otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes node with specified data point (if it exists) by moving the last slot into its place.
+     * @param data data point associated with node to remove.
+     */
+    @Override
+    public void remove(T data) {
+        final int i = indexOf(data);
+        if (i < 0) return;
+        this.data[i] = this.data[--size];
+        this.data[size] = null;
+    }
+
+    /**
+     * @param data data point associated with node to check for existence.
+     * @return {@code true} if node associated with the specified data point exists, {@code false} otherwise.
+     */
+    @Override
+    public boolean contains(T data) {
+        return indexOf(data) >= 0;
+    }
+
+    private int indexOf(Object o) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(data[i], o)) return i;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T at(int i) {
+        return (T) data[i];
+    }
+
+    private int left(int i) {
+        final long l = 2L * i + 1;
+        return l < size ? (int) l : -1;
+    }
+
+    private int right(int i) {
+        final long r = 2L * i + 2;
+        return r < size ? (int) r : -1;
+    }
+
+    private static int parent(int i) {
+        return (i - 1) >>> 1;
+    }
+
+    private static boolean isLeftChild(int i) {
+        return (i & 1) == 1;
+    }
+
+    /**
+     * Follows left children down from slot {@code i}; in a complete tree this also ends at a leaf.
+     */
+    private int leftmost(int i) {
+        for (int l = left(i); l >= 0; l = left(i)) i = l;
+        return i;
+    }
+
+    /**
+     * Traversals below walk the slots with index arithmetic alone, without a stack.
+     * @return data points in in-order.
+     */
+    public List<T> inOrder() {
+        final var path = new ArrayList<T>(size);
+        if (size == 0) return path;
+        for (int i = leftmost(0); i >= 0; ) {
+            path.add(at(i));
+            final int r = right(i);
+            if (r >= 0) i = leftmost(r);                // go right, then all the way left.
+            else {
+                while (i > 0 && !isLeftChild(i)) i = parent(i);
+                i = i == 0 ? -1 : parent(i);            // go up past the subtree just finished.
+            }
+        }
+        return path;
+    }
+
+    /**
+     * @return data points in pre-order.
+     */
+    public List<T> preOrder() {
+        final var path = new ArrayList<T>(size);
+        for (int i = size == 0 ? -1 : 0; i >= 0; ) {
+            path.add(at(i));
+            final int l = left(i);
+            if (l >= 0) i = l;                          // go left.
+            else {
+                while (i > 0 && !(isLeftChild(i) && i + 1 < size)) i = parent(i);
+                i = i == 0 ? -1 : i + 1;                // go to the right sibling.
+            }
+        }
+        return path;
+    }
+
+    /**
+     * @return data points in post-order.
+     */
+    public List<T> postOrder() {
+        final var path = new ArrayList<T>(size);
+        for (int i = size == 0 ? -1 : leftmost(0); i >= 0; ) {
+            path.add(at(i));
+            if (i == 0) i = -1;
+            else if (isLeftChild(i) && i + 1 < size) i = leftmost(i + 1);  // go to the right sibling's first leaf.
+            else i = parent(i);                                             // go up.
+        }
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        final var sb = new StringBuilder();
+        if (size == 0) sb.append("Empty Tree.");
+        else toString(0, "", sb, true);
+        return sb.toString();
+    }
+
+    private void toString(int i, String pre, StringBuilder sb, boolean isLeft) {
+        final int l = left(i), r = right(i);
+        if (r >= 0) toString(r, pre + (isLeft ? "│   " : "    "), sb, false);
+        sb.append(pre).append(isLeft ? "└── " : "┌── ").append(at(i)).append("\n");
+        if (l >= 0) toString(l, pre + (isLeft ? "    " : "│   "), sb, true);
+    }
+}
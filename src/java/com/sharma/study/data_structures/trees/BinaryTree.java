@@ -1,14 +1,189 @@
 package com.sharma.study.data_structures.trees;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.*;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class BinaryTree<T> implements Tree<T> {
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
     private BinaryTreeNode<T> root;
+    private final NodeIndex<T> index;
+    private boolean mirrored;
 
-    public BinaryTree() {}
+    public BinaryTree() {
+        this(false);
+    }
+
+    /**
+     * @param indexed {@code true} to keep a data-to-node hash index, trading memory for O(1) expected lookups.
+     */
+    public BinaryTree(boolean indexed) {
+        this.index = indexed ? new NodeIndex<>() : null;
+    }
 
     public BinaryTree(Collection<T> collection) {
-        collection.forEach(this::add);
+        this(collection, false);
+    }
+
+    /**
+     * Builds the same tree that adding every element of the collection in iteration order would, in one linear pass.
+     */
+    public BinaryTree(Collection<T> collection, boolean indexed) {
+        this(indexed);
+        load(collection.toArray());
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")                        // the array is only read, by copyOf.
+    public static <T> BinaryTree<T> of(T... values) {
+        final var tree = new BinaryTree<T>();
+        tree.load(Arrays.copyOf(values, values.length, Object[].class));     // copied, so the varargs array never escapes.
+        return tree;
+    }
+
+    private void load(Object[] values) {
+        root = values.length < PARALLEL_THRESHOLD
+                ? build(values, 0, 1, values.length)
+                : new BuildTask<T>(values, 0, 1, values.length).invoke();
+        if (index != null) reindex();
+    }
+
+    /**
+     * Successive adds alternate between the left and right subtree, so the subtree rooted at {@code values[offset]}
+     * holds every {@code stride}-th value: the left subtree starts at {@code offset + stride} and the right subtree at
+     * {@code offset + 2 * stride}, both with twice the stride.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> BinaryTreeNode<T> build(Object[] values, int offset, int stride, int count) {
+        if (count == 0) return null;
+        final var n = new BinaryTreeNode<>((T) values[offset]);
+        link(n, build(values, offset + stride,     stride << 1, count >>> 1),
+                build(values, offset + 2 * stride, stride << 1, (count - 1) >>> 1));
+        return n;
+    }
+
+    /**
+     * Attaches two finished subtrees below {@code n} and threads the in-order sequence through {@code n}.
+     */
+    private static <T> void link(BinaryTreeNode<T> n, BinaryTreeNode<T> left, BinaryTreeNode<T> right) {
+        n.left  = left;
+        n.right = right;
+        if (left  != null) {  left.parent = n; rightmost(left).next = n; }
+        if (right != null) { right.parent = n; }
+        n.next = right == null ? null : leftmost(right);
+        refresh(n);
+    }
+
+    private static <T> BinaryTreeNode<T> leftmost(BinaryTreeNode<T> n) {
+        while (n.left != null) n = n.left;
+        return n;
+    }
+
+    private static <T> BinaryTreeNode<T> rightmost(BinaryTreeNode<T> n) {
+        while (n.right != null) n = n.right;
+        return n;
+    }
+
+    /**
+     * @return the logical left child of {@code n}, which is the physical right child while the tree is mirrored.
+     */
+    private static <T> BinaryTreeNode<T> leftOf(BinaryTreeNode<T> n, boolean mirrored) {
+        return mirrored ? n.right : n.left;
+    }
+
+    private static <T> BinaryTreeNode<T> rightOf(BinaryTreeNode<T> n, boolean mirrored) {
+        return mirrored ? n.left : n.right;
+    }
+
+    private static <T> BinaryTreeNode<T> firstOf(BinaryTreeNode<T> n, boolean mirrored) {
+        return mirrored ? rightmost(n) : leftmost(n);
+    }
+
+    /**
+     * The {@code next} thread follows the physical in-order, so a mirrored tree steps back to the physical
+     * predecessor instead, which costs amortized O(1) over a whole walk.
+     * @return the node following {@code n} in logical in-order.
+     */
+    private static <T> BinaryTreeNode<T> successorOf(BinaryTreeNode<T> n, boolean mirrored) {
+        if (!mirrored) return n.next;
+        return n.left != null ? rightmost(n.left) : predecessorOfLeftless(n);
+    }
+
+    /**
+     * A node without a left child is preceded by the parent of its nearest ancestor (itself included) that is a right
+     * child, so its in-order predecessor is found in O(height) without a {@code prev} link.
+     */
+    private static <T> BinaryTreeNode<T> predecessorOfLeftless(BinaryTreeNode<T> n) {
+        while (n.parent != null && n.parent.left == n) n = n.parent;
+        return n.parent;
+    }
+
+    /**
+     * Recomputes every {@code next} link in one in-order pass after the shape changed in bulk.
+     */
+    private static <T> void thread(BinaryTreeNode<T> root) {
+        BinaryTreeNode<T> prev = null;
+        final var it = new InOrderPath.StackIterator<T>(root);
+        while (it.hasNext()) {
+            final var n = it.nextNode();
+            if (prev != null) prev.next = n;
+            prev = n;
+        }
+        if (prev != null) prev.next = null;
+    }
+
+    private static final class BuildTask<T> extends RecursiveTask<BinaryTreeNode<T>> {
+        private static final long serialVersionUID = 1L;
+        private final Object[] values;
+        private final int offset, stride, count;
+
+        private BuildTask(Object[] values, int offset, int stride, int count) {
+            this.values = values;
+            this.offset = offset;
+            this.stride = stride;
+            this.count  = count;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected BinaryTreeNode<T> compute() {
+            if (count < PARALLEL_THRESHOLD) return build(values, offset, stride, count);
+            final var left  = new BuildTask<T>(values, offset + stride,     stride << 1, count >>> 1);
+            final var right = new BuildTask<T>(values, offset + 2 * stride, stride << 1, (count - 1) >>> 1);
+            left.fork();
+            final var n = new BinaryTreeNode<>((T) values[offset]);
+            final var r = right.compute();
+            link(n, left.join(), r);
+            return n;
+        }
+    }
+
+    /**
+     * Refills the index from scratch after the nodes were built or rearranged in bulk.
+     */
+    private void reindex() {
+        index.clear();
+        final var stack = new ArrayDeque<BinaryTreeNode<T>>();
+        if (root != null) stack.push(root);
+        while (!stack.isEmpty()) {
+            final var n = stack.pop();
+            index.put(n);
+            if (n.right != null) stack.push(n.right);
+            if (n.left  != null) stack.push(n.left);
+        }
+    }
+
+    BinaryTreeNode<T> root() {
+        return root;
     }
 
     /**
@@ -25,17 +200,52 @@ public class BinaryTree<T> implements Tree<T> {
      */
     @Override
     public void add(T data) {
-        root = add(root, data);
+        addNode(data);
     }
 
-    private static <T> BinaryTreeNode<T> add(BinaryTreeNode<T> n, T data) {
-        if (n == null) return new BinaryTreeNode<>(data);
-        if (n.left == null || (n.right != null && (n.left.size <= n.right.size))) {  n.left  = add(n.left,  data); }
-        else                                                                      {  n.right = add(n.right, data); }
-        if (n.left  != null) {  n.left.parent = n; }
-        if (n.right != null) { n.right.parent = n; }
-        n.size = 1 + size(n.left) + size(n.right);
-        return n;
+    /**
+     * @return the new leaf, for package-level indexes that extend themselves incrementally.
+     */
+    BinaryTreeNode<T> addNode(T data) {
+        final var leaf = new BinaryTreeNode<>(data);
+        refresh(leaf);
+        root = add(root, leaf, mirrored);
+        final var parent = leaf.parent;
+        if (parent != null && parent.left == leaf) {
+            leaf.next = parent;
+            final var pred = predecessorOfLeftless(parent);
+            if (pred != null) pred.next = leaf;
+        } else if (parent != null) {
+            leaf.next   = parent.next;
+            parent.next = leaf;
+        }
+        if (index != null) index.put(leaf);
+        return leaf;
+    }
+
+    /**
+     * Descends to the free slot in a loop and refreshes the path back up along the parent links, so the call depth
+     * stays constant however skewed the tree is. Ties go to the logical left, so a mirrored tree grows as its
+     * materialized inversion would.
+     */
+    private static <T> BinaryTreeNode<T> add(BinaryTreeNode<T> root, BinaryTreeNode<T> leaf, boolean mirrored) {
+        if (root == null) return leaf;
+        var n = root;
+        while (true) {
+            final var l = leftOf(n, mirrored);
+            final var r = rightOf(n, mirrored);
+            final boolean goLeft = (l == null || (r != null && (l.size <= r.size))) != mirrored;
+            final var child = goLeft ? n.left : n.right;
+            if (child == null) {
+                if (goLeft) n.left  = leaf;
+                else        n.right = leaf;
+                leaf.parent = n;
+                break;
+            }
+            n = child;
+        }
+        for (var p = leaf.parent; p != null; p = p.parent) refresh(p);
+        return root;
     }
 
     /**
@@ -52,119 +262,557 @@ public class BinaryTree<T> implements Tree<T> {
      */
     @Override
     public void remove(T data) {
-        root = remove(root, data);
-        updateSizes(root);
+        final var n = find(data);
+        if (n == null) return;
+        remove(n);
+    }
+
+    /**
+     * Moves the data point of a leaf below {@code n} into {@code n} and unlinks that leaf instead.
+     * Descending into the larger subtree keeps the size-balanced shape, and only the sizes on the
+     * path from the unlinked leaf back up to the root change, so removal costs O(height).
+     * The cached heights and balance flags on that path are refreshed along with the sizes.
+     */
+    private void remove(BinaryTreeNode<T> n) {
+        var leaf = n;
+        while (!leaf.isLeaf()) {
+            final var l = leftOf(leaf, mirrored);
+            final var r = rightOf(leaf, mirrored);
+            leaf = (r == null || (l != null && l.size >= r.size)) ? l : r;
+        }
+        if (index != null) {
+            index.remove(n);
+            if (leaf != n) {
+                index.remove(leaf);
+                n.data = leaf.data;
+                index.put(n);
+            }
+        } else {
+            n.data = leaf.data;
+        }
+        final var pred = leaf.parent != null && leaf.parent.right == leaf ? leaf.parent : predecessorOfLeftless(leaf);
+        if (pred != null) pred.next = leaf.next;
+        leaf.next = null;
+        final var parent = leaf.parent;
+        if (parent == null)             root = null;
+        else if (parent.left == leaf)   parent.left  = null;
+        else                            parent.right = null;
+        leaf.parent = null;
+        for (var p = parent; p != null; p = p.parent) refresh(p);
+    }
+
+    /**
+     * @param data data point associated with node to check for existence.
+     * @return {@code true} if node associated with the specified data point exists, {@code false} otherwise.
+     */
+    @Override
+    public boolean contains(T data) {
+        return find(data) != null;
+    }
+
+    /**
+     * Follows the in-order {@code next} thread, so this is O(1) once the node is found.
+     * @param data data point associated with the node whose successor is wanted.
+     * @return the data point following it in in-order, or {@code null} if there is none or it does not exist.
+     */
+    public T successor(T data) {
+        final var n = find(data);
+        final var next = n == null ? null : successorOf(n, mirrored);
+        return next == null ? null : next.data;
     }
 
-    private static <T> BinaryTreeNode<T> remove(BinaryTreeNode<T> n, T data) {
-        if (n == null) return null;
-        if (n.data.equals(data)) {
-            if (n.isLeaf()) return null;
+    /**
+     * Descends from the root by comparing the position with the size of each left subtree, in O(height).
+     * @param index position in in-order.
+     * @return the data point at that position.
+     */
+    public T get(int index) {
+        return nodeAt(Objects.checkIndex(index, size())).data;
+    }
+
+    private BinaryTreeNode<T> nodeAt(int index) {
+        var n = root;
+        while (true) {
+            final int leftSize = size(leftOf(n, mirrored));
+            if (index == leftSize) return n;
+            if (index < leftSize) n = leftOf(n, mirrored);
             else {
-                final int cmp = Integer.compare(size(n.left), size(n.right));
-                if (cmp <= 0)   swap(n, n.left);
-                else            swap(n, n.right);
+                index -= leftSize + 1;
+                n = rightOf(n, mirrored);
             }
         }
-        n.left  = remove(n.left,  data);
-        n.right = remove(n.right, data);
+    }
+
+    /**
+     * Climbs from the node to the root, counting the nodes that precede it in in-order, in O(height) once found.
+     * @return the in-order position of a node holding the specified data point, or {@code -1} if there is none.
+     */
+    public int indexOf(T data) {
+        var n = find(data);
+        if (n == null) return -1;
+        int index = size(leftOf(n, mirrored));
+        for (; n.parent != null; n = n.parent) {
+            if (rightOf(n.parent, mirrored) == n) index += size(leftOf(n.parent, mirrored)) + 1;
+        }
+        return index;
+    }
+
+    /**
+     * @return a view of the in-order positions {@code [from, to)}; element access is O(height) and iteration follows
+     * the {@code next} thread. The view is undefined once this tree is modified.
+     */
+    public List<T> subList(int from, int to) {
+        Objects.checkFromToIndex(from, to, size());
+        return new AbstractList<>() {
+            @Override
+            public T get(int index) {
+                return BinaryTree.this.get(from + Objects.checkIndex(index, to - from));
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+
+            @Override
+            public Iterator<T> iterator() {
+                return new InOrderPath.InOrderIterator<>(from == to ? null : nodeAt(from), to - from, mirrored);
+            }
+        };
+    }
+
+    /**
+     * Draws a uniform in-order position and descends to it with the subtree sizes, in O(height).
+     * @return a data point chosen uniformly at random.
+     */
+    public T sample(Random random) {
+        if (root == null) throw new NoSuchElementException();
+        return nodeAt(random.nextInt(size())).data;
+    }
+
+    public T sample(SplittableRandom random) {
+        if (root == null) throw new NoSuchElementException();
+        return nodeAt(random.nextInt(size())).data;
+    }
+
+    /**
+     * @return {@code k} data points drawn uniformly without replacement, in in-order.
+     */
+    public List<T> sample(int k) {
+        return sample(k, new SplittableRandom());
+    }
+
+    /**
+     * Splits the {@code k} draws between the left subtree, the node and the right subtree of every node visited, as
+     * drawing without replacement would, and samples large subtrees concurrently with a split-off generator each.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> sample(int k, SplittableRandom random) {
+        if (k < 0 || k > size()) throw new IllegalArgumentException("Cannot sample " + k + " of " + size() + " nodes.");
+        final var out = new Object[k];
+        new SampleTask<>(root, mirrored, k, out, 0, random).invoke();
+        return (List<T>) Arrays.asList(out);
+    }
+
+    private static final class SampleTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final BinaryTreeNode<T> node;
+        private final boolean mirrored;
+        private final int k, offset;
+        private final Object[] out;
+        private final SplittableRandom random;
+
+        private SampleTask(BinaryTreeNode<T> node, boolean mirrored, int k, Object[] out, int offset, SplittableRandom random) {
+            this.node     = node;
+            this.mirrored = mirrored;
+            this.k        = k;
+            this.out    = out;
+            this.offset = offset;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            sample(node, k, offset);
+        }
+
+        private void sample(BinaryTreeNode<T> n, int k, int offset) {
+            if (k == 0) return;
+            if (k == n.size) {
+                fill(n, Order.IN, mirrored, out, offset);
+                return;
+            }
+            final var left = leftOf(n, mirrored);
+            final var right = rightOf(n, mirrored);
+            int inLeft = 0, inSelf = 0, leftLeft = size(left), selfLeft = 1;
+            for (int i = 0, remaining = n.size; i < k; i++, remaining--) {
+                final int u = random.nextInt(remaining);
+                if (u < leftLeft)                   { inLeft++; leftLeft--; }
+                else if (u < leftLeft + selfLeft)   { inSelf++; selfLeft--; }
+            }
+            if (inSelf == 1) out[offset + inLeft] = n.data;
+            final int inRight = k - inLeft - inSelf;
+            if (inLeft >= PARALLEL_THRESHOLD && inRight >= PARALLEL_THRESHOLD) {
+                final var task = new SampleTask<>(left, mirrored, inLeft, out, offset, random.split());
+                task.fork();
+                sample(right, inRight, offset + inLeft + inSelf);
+                task.join();
+            } else {
+                sample(left,  inLeft,  offset);
+                sample(right, inRight, offset + inLeft + inSelf);
+            }
+        }
+    }
+
+    /**
+     * @return a node holding the specified data point, looked up in the index when this tree keeps one.
+     */
+    BinaryTreeNode<T> find(T data) {
+        return index != null ? index.get(data) : findFirst(root, data, mirrored);
+    }
+
+    /**
+     * @return the node reached from the root by the logical steps of {@code path}, {@code 'L'} or {@code 'R'} each, or
+     * {@code null} if there is none.
+     */
+    BinaryTreeNode<T> nodeAt(CharSequence path) {
+        var n = root;
+        for (int i = 0; i < path.length() && n != null; i++) n = child(n, path.charAt(i) == 'L');
         return n;
     }
 
-    private static <T> void updateSizes(BinaryTreeNode<T> n) {
-        if (n == null) return;
-        updateSizes(n.left);
-        updateSizes(n.right);
-        n.size = 1 + size(n.left) + size(n.right);
+    BinaryTreeNode<T> child(BinaryTreeNode<T> n, boolean left) {
+        return left ? leftOf(n, mirrored) : rightOf(n, mirrored);
     }
 
-    private static <T> void swap(BinaryTreeNode<T> parent, BinaryTreeNode<T> child) {
-        if (child == null) return;
-        final var t = parent.data;
-        parent.data = child.data;
-        child.data = t;
+    /**
+     * @return the Merkle hash of the subtree rooted at {@code n}, which may be {@code null}, in this tree's orientation.
+     */
+    long hashOf(BinaryTreeNode<T> n) {
+        return hash(n, mirrored);
     }
 
     /**
-     * @param data data point associated with node to check for existence.
-     * @return {@code true} if node associated with the specified data point exists, {@code false} otherwise.
+     * Replaces the data point of {@code n}, keeping the index current and rehashing the parent chain.
      */
-    @Override
-    public boolean contains(T data) {
-        return contains(root, data);
+    void set(BinaryTreeNode<T> n, T data) {
+        if (index != null) index.remove(n);
+        n.data = data;
+        if (index != null) index.put(n);
+        for (var p = n; p != null; p = p.parent) refresh(p);
+    }
+
+    /**
+     * Replaces the logical child of {@code parent}, or the root if {@code parent} is {@code null}, with the subtree
+     * described by its logical pre-order data points and {@code shape} flags (1 for a left child, 2 for a right one),
+     * or removes it if {@code data} is empty. The in-order thread is spliced around the slot and only the path above
+     * it is refreshed, so this costs O(old subtree + new subtree + height). The new subtree is built before anything is
+     * detached, so a malformed shape leaves the tree as it was.
+     * @throws IllegalStateException if {@code shape} does not describe exactly one whole subtree.
+     */
+    void graft(BinaryTreeNode<T> parent, boolean left, Object[] data, byte[] shape) {
+        final var subtree = data.length == 0 ? null : fromPreOrder(data, shape);
+        final boolean physicalLeft = left != mirrored;
+        final var old = parent == null ? root : physicalLeft ? parent.left : parent.right;
+        final BinaryTreeNode<T> pred, succ;
+        if (old != null) {
+            pred = predecessorOfLeftless(leftmost(old));
+            succ = rightmost(old).next;
+            if (index != null) forEachNode(old, index::remove);
+            old.parent = null;
+        } else if (parent == null) {
+            pred = succ = null;
+        } else if (physicalLeft) {
+            pred = predecessorOfLeftless(parent);
+            succ = parent;
+        } else {
+            pred = parent;
+            succ = parent.next;
+        }
+        if (parent == null)    root         = subtree;
+        else if (physicalLeft) parent.left  = subtree;
+        else                   parent.right = subtree;
+        if (subtree != null) {
+            subtree.parent = parent;
+            if (pred != null) pred.next = leftmost(subtree);
+            rightmost(subtree).next = succ;
+            if (index != null) forEachNode(subtree, index::put);
+        } else if (pred != null) {
+            pred.next = succ;
+        }
+        for (var p = parent; p != null; p = p.parent) refresh(p);
     }
 
-    private static <T> boolean contains(BinaryTreeNode<T> n, T data) {
-        if (n == null) return false;
-        return n.data.equals(data) || contains(n.left, data) || contains(n.right, data);
+    @SuppressWarnings("unchecked")
+    private BinaryTreeNode<T> fromPreOrder(Object[] data, byte[] shape) {
+        final var builder = new PreOrderBuilder<T>(mirrored);
+        for (int i = 0; i < data.length; i++) builder.add((T) data[i], (shape[i] & 1) != 0, (shape[i] & 2) != 0);
+        return builder.root();
+    }
+
+    /**
+     * Installs a finished tree from a {@link PreOrderBuilder} in place of the current one, unmirrored.
+     */
+    void replaceRoot(BinaryTreeNode<T> root) {
+        this.root = root;
+        mirrored  = false;
+        if (index != null) reindex();
+    }
+
+    /**
+     * Rebuilds a subtree in one pass from its logical pre-order, given each data point with the children that follow
+     * it. Nodes still expecting a child wait on a stack; a node is refreshed as soon as its last subtree is finished,
+     * and is threaded in in-order as soon as its left subtree is. The nodes are laid out physically for a tree that is
+     * {@code mirrored} or not, and in the mirrored case the {@code next} thread is built back to front.
+     */
+    static final class PreOrderBuilder<T> {
+        private final boolean mirrored;
+        private BinaryTreeNode<T>[] pending;    // nodes with a child slot still to fill.
+        private byte[] expects;                 // the slots still to fill: 1 for left, 2 for right.
+        private int top;
+        private BinaryTreeNode<T> root, last;   // last node threaded so far.
+
+        @SuppressWarnings("unchecked")
+        PreOrderBuilder(boolean mirrored) {
+            this.mirrored = mirrored;
+            this.pending  = (BinaryTreeNode<T>[]) new BinaryTreeNode<?>[32];
+            this.expects  = new byte[32];
+        }
+
+        void add(T data, boolean hasLeft, boolean hasRight) {
+            final var n = new BinaryTreeNode<>(data);
+            if (top == 0) {
+                if (root != null) throw new IllegalStateException("The pre-order already holds a whole tree.");
+                root = n;
+            } else {
+                final var p = pending[top - 1];
+                final boolean asLeft = (expects[top - 1] & 1) != 0;
+                if (asLeft != mirrored) p.left  = n;
+                else                    p.right = n;
+                n.parent = p;
+                expects[top - 1] &= asLeft ? ~1 : 0;
+                if (expects[top - 1] == 0) top--;
+            }
+            if (!hasLeft) thread(n);
+            if (hasLeft || hasRight) {
+                if (top == pending.length) {
+                    pending = Arrays.copyOf(pending, top << 1);
+                    expects = Arrays.copyOf(expects, top << 1);
+                }
+                pending[top]   = n;
+                expects[top++] = (byte) ((hasLeft ? 1 : 0) | (hasRight ? 2 : 0));
+            } else {
+                finish(n);
+            }
+        }
+
+        /**
+         * Refreshes the finished subtree {@code c}, then every ancestor it was the last missing subtree of.
+         */
+        private void finish(BinaryTreeNode<T> c) {
+            while (true) {
+                refresh(c);
+                final var p = c.parent;
+                if (p == null) return;
+                if (c == leftOf(p, mirrored)) thread(p);
+                if (top > 0 && pending[top - 1] == p) return;       // p still expects its right subtree.
+                c = p;
+            }
+        }
+
+        private void thread(BinaryTreeNode<T> n) {
+            if (mirrored)          n.next    = last;
+            else if (last != null) last.next = n;
+            last = n;
+        }
+
+        boolean isComplete() {
+            return root != null && top == 0;
+        }
+
+        /**
+         * @return the root of the finished subtree.
+         */
+        BinaryTreeNode<T> root() {
+            if (!isComplete()) throw new IllegalStateException("The pre-order ended inside a subtree.");
+            return root;
+        }
+    }
+
+    private static <T> void forEachNode(BinaryTreeNode<T> root, Consumer<BinaryTreeNode<T>> action) {
+        final var stack = new ArrayDeque<BinaryTreeNode<T>>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            final var n = stack.pop();
+            action.accept(n);
+            if (n.right != null) stack.push(n.right);
+            if (n.left  != null) stack.push(n.left);
+        }
     }
 
     private static <T> int size(BinaryTreeNode<T> n) {
         return n == null ? 0 : n.size;
     }
 
-    private static <T> BinaryTreeNode<T> findFirst(BinaryTreeNode<T> n, T data) {
-        if (n == null) return null;
-        if (n.data.equals(data)) return n;
-        n.left  = findFirst(n.left,  data);
-        n.right = findFirst(n.right, data);
-        return n;
+    /**
+     * Searches in logical pre-order with an explicit stack, so the first match is the same as a recursive search would
+     * find.
+     */
+    private static <T> BinaryTreeNode<T> findFirst(BinaryTreeNode<T> root, T data, boolean mirrored) {
+        final var stack = new ArrayDeque<BinaryTreeNode<T>>();
+        if (root != null) stack.push(root);
+        while (!stack.isEmpty()) {
+            final var n = stack.pop();
+            if (Objects.equals(n.data, data)) return n;
+            final var l = leftOf(n, mirrored);
+            final var r = rightOf(n, mirrored);
+            if (r != null) stack.push(r);
+            if (l != null) stack.push(l);
+        }
+        return null;
     }
 
     /**
      * Find the lowest common ancestor of the two given data points.
+     * Both nodes climb their parent links to equal depth and then in lockstep, so this costs O(height) once the nodes
+     * are found (O(1) expected with the index) and allocates nothing.
      * @param c0 first data point.
      * @param c1 second data point.
-     * @return the data point associated with the lowest common ancestor.
+     * @return the data point associated with the lowest common ancestor, or {@code null} if either does not exist.
      */
     public T findLCA(T c0, T c1) {
-        final var n = findLCA(root, findFirst(root, c0), findFirst(root, c1)).ancestor;
-        return n == null ? null : n.data;
+        var n0 = find(c0);
+        var n1 = find(c1);
+        if (n0 == null || n1 == null) return null;
+        int d0 = depth(n0), d1 = depth(n1);
+        for (; d0 > d1; d0--) n0 = n0.parent;
+        for (; d1 > d0; d1--) n1 = n1.parent;
+        while (n0 != n1) {
+            n0 = n0.parent;
+            n1 = n1.parent;
+        }
+        return n0.data;
     }
 
-    private static <T> LCAStatus<T> findLCA(BinaryTreeNode<T> n, BinaryTreeNode<T> c0, BinaryTreeNode<T> c1) {
-        if (n == null) return new LCAStatus<>(null, 0);
-        final var l = findLCA(n.left,  c0, c1);
-        if (l.numFound == 2) return l;
-        final var r = findLCA(n.right, c0, c1);
-        if (r.numFound == 2) return r;
-        final int numHere = ((n == c0 ? 1 : 0) + (n == c1 ? 1 : 0)) + l.numFound + r.numFound;
-        return new LCAStatus<>(numHere == 2 ? n : null, numHere);
+    private static <T> int depth(BinaryTreeNode<T> n) {
+        int depth = 0;
+        for (var p = n.parent; p != null; p = p.parent) depth++;
+        return depth;
     }
 
-    private static final class LCAStatus<T> {
-        private BinaryTreeNode<T> ancestor;
-        private int numFound;
+    /**
+     * Reads the balance flag cached at the root, so this is O(1).
+     * @return {@code true} if the heights of the two subtrees of every node differ by at most one.
+     */
+    public boolean isBalanced() {
+        return root == null || root.balanced;
+    }
 
-        private LCAStatus(BinaryTreeNode<T> ancestor, int numFound) {
-            this.ancestor = ancestor;
-            this.numFound = numFound;
-        }
+    /**
+     * @return the number of edges on the longest path from the root down to a leaf, or {@code -1} if this tree is empty.
+     */
+    public int height() {
+        return height(root);
     }
 
-    public boolean isBalanced() {
-        return isBalanced(root).isBalanced;
+    private static <T> int height(BinaryTreeNode<T> n) {
+        return n == null ? -1 : n.height; // one level below lowest leaf.
+    }
+
+    /**
+     * Recomputes the cached size, height, balance flag and Merkle hashes of {@code n} from its children, which must be
+     * up to date. Every mutation refreshes the whole parent chain up to the root, so the caches are always current and
+     * read-only calls never write to a node. Swapping the children changes none of the sizes, so inversion never needs
+     * it.
+     */
+    private static <T> void refresh(BinaryTreeNode<T> n) {
+        final int l = height(n.left), r = height(n.right);
+        final int data = Objects.hashCode(n.data);
+        n.size       = 1 + size(n.left) + size(n.right);
+        n.height     = 1 + Math.max(l, r);
+        n.balanced   = Math.abs(l - r) <= 1 && (n.left == null || n.left.balanced) && (n.right == null || n.right.balanced);
+        n.hash       = combine(data, hash(n.left, false), hash(n.right, false));
+        n.mirrorHash = combine(data, hash(n.right, true), hash(n.left, true));
     }
 
-    private static <T> BalancedStatus isBalanced(BinaryTreeNode<T> n) {
-        if (n == null) return new BalancedStatus(true, -1); // one level below lowest leaf.
-        final var l = isBalanced(n.left);
-        if (!l.isBalanced) return l; // early termination from left.
-        final var r = isBalanced(n.right);
-        if (!r.isBalanced) return r; // early termination from right.
-        return new BalancedStatus(
-                Math.max(l.height, r.height) <= 1,
-                   Math.abs(l.height - r.height) + 1
-        );
+    /**
+     * @return an in-order spliterator that splits along subtree boundaries, reporting exact sizes from the cached
+     * {@code size} fields.
+     */
+    public Spliterator<T> spliterator() {
+        return new NodeSpliterator<>(null, root, mirrored);
     }
 
-    private static final class BalancedStatus {
-        private boolean isBalanced;
-        private int height;
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Covers one optional {@code lead} node followed by the whole subtree {@code subtree} in in-order.
+     * Splitting hands off {@code (lead, subtree.left)} as the prefix and keeps {@code (subtree, subtree.right)},
+     * so both halves keep this form and their sizes stay exact. Sides are logical, so a mirrored tree splits the same.
+     */
+    private static final class NodeSpliterator<T> implements Spliterator<T> {
+        private BinaryTreeNode<T> lead, subtree, cursor;
+        private final boolean mirrored;
+        private int remaining;
+
+        private NodeSpliterator(BinaryTreeNode<T> lead, BinaryTreeNode<T> subtree, boolean mirrored) {
+            this.lead      = lead;
+            this.subtree   = subtree;
+            this.mirrored  = mirrored;
+            this.remaining = (lead == null ? 0 : 1) + size(subtree);
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            while (subtree != null) {
+                if (lead == null && leftOf(subtree, mirrored) == null) {    // empty prefix, take the subtree root as lead.
+                    lead    = subtree;
+                    subtree = rightOf(subtree, mirrored);
+                    continue;
+                }
+                final var prefix = new NodeSpliterator<>(lead, leftOf(subtree, mirrored), mirrored);
+                lead      = subtree;
+                subtree   = rightOf(subtree, mirrored);
+                remaining -= prefix.remaining;
+                return prefix;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            final BinaryTreeNode<T> n;
+            if (lead != null) {
+                n    = lead;
+                lead = null;
+            } else {
+                if (subtree != null) {
+                    cursor  = firstOf(subtree, mirrored);
+                    subtree = null;
+                }
+                if (remaining == 0) return false;
+                n      = cursor;
+                cursor = successorOf(cursor, mirrored);     // the subtree's nodes are consecutive in in-order.
+            }
+            remaining--;
+            action.accept(n.data);
+            return true;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
 
-        private BalancedStatus(boolean isBalanced, int height) {
-            this.isBalanced = isBalanced;
-            this.height = height;
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
         }
     }
 
@@ -175,6 +823,113 @@ public class BinaryTree<T> implements Tree<T> {
     interface TraversalPath<T> {
         List<T> recursive(BinaryTree<T> tree);
         List<T> iterative(BinaryTree<T> tree);
+
+        /**
+         * Walks the tree on demand, so consumers that stop early only pay for the nodes they read.
+         * @return a lazy iterator over the traversal path, needing at most a stack of height + 1 nodes.
+         */
+        Iterator<T> iterator(BinaryTree<T> tree);
+
+        default Stream<T> stream(BinaryTree<T> tree) {
+            final int size = tree == null ? 0 : tree.size();
+            return StreamSupport.stream(Spliterators.spliterator(iterator(tree), size, Spliterator.ORDERED), false);
+        }
+
+        /**
+         * Every node's position in the path follows from the subtree sizes alone, so large subtrees are written
+         * straight into their slice of a preallocated array by concurrent fork-join tasks.
+         * @return the traversal path as an array of length {@code tree.size()}.
+         */
+        Object[] toArray(BinaryTree<T> tree);
+
+        <A> A[] toArray(BinaryTree<T> tree, IntFunction<A[]> generator);
+    }
+
+    private enum Order { IN, PRE, POST }
+
+    private static <T, A> A[] fill(BinaryTree<T> tree, Order order, IntFunction<A[]> generator) {
+        final var root  = tree == null ? null : tree.root;
+        final var mirrored = tree != null && tree.mirrored;
+        final var array = generator.apply(size(root));
+        if (size(root) < PARALLEL_THRESHOLD) fill(root, order, mirrored, array, 0);
+        else new FillTask<>(root, order, mirrored, array, 0).invoke();
+        return array;
+    }
+
+    /**
+     * Writes the subtree rooted at {@code n} to {@code array} from {@code offset} on, walking it sequentially.
+     */
+    private static <T> void fill(BinaryTreeNode<T> n, Order order, boolean mirrored, Object[] array, int offset) {
+        final Iterator<T> path;
+        switch (order) {
+            case IN:  path = new InOrderPath.InOrderIterator<>(n, mirrored);     break;
+            case PRE: path = new PreOrderPath.PreOrderIterator<>(n, mirrored);   break;
+            default:  path = new PostOrderPath.PostOrderIterator<>(n, mirrored); break;
+        }
+        while (path.hasNext()) array[offset++] = path.next();
+    }
+
+    private static final class FillTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final BinaryTreeNode<T> node;
+        private final Order order;
+        private final boolean mirrored;
+        private final Object[] array;
+        private final int offset;
+
+        private FillTask(BinaryTreeNode<T> node, Order order, boolean mirrored, Object[] array, int offset) {
+            this.node     = node;
+            this.order    = order;
+            this.mirrored = mirrored;
+            this.array    = array;
+            this.offset   = offset;
+        }
+
+        /**
+         * Forks the smaller child and keeps descending into the larger one, so even a degenerate tree never
+         * recurses deeper than the number of forks.
+         */
+        @Override
+        protected void compute() {
+            final var forked = new ArrayList<FillTask<T>>();
+            var n = node;
+            int off = offset;
+            while (size(n) >= PARALLEL_THRESHOLD) {
+                final var left = leftOf(n, mirrored);
+                final var right = rightOf(n, mirrored);
+                final int l = size(left), r = size(right);
+                final int self, leftOffset, rightOffset;
+                switch (order) {
+                    case IN:  leftOffset = off;  self        = off + l;  rightOffset = self + 1;        break;
+                    case PRE: self       = off;  leftOffset  = off + 1;  rightOffset = leftOffset + l;  break;
+                    default:  leftOffset = off;  rightOffset = off + l;  self        = rightOffset + r; break;
+                }
+                array[self] = n.data;
+                final FillTask<T> task;
+                if (l <= r) {
+                    task = new FillTask<>(left,  order, mirrored, array, leftOffset);
+                    n    = right;
+                    off  = rightOffset;
+                } else {
+                    task = new FillTask<>(right, order, mirrored, array, rightOffset);
+                    n    = left;
+                    off  = leftOffset;
+                }
+                if (task.node != null) {
+                    task.fork();
+                    forked.add(task);
+                }
+            }
+            fill(n, order, mirrored, array, off);
+            for (final var task : forked) task.join();
+        }
+    }
+
+    /**
+     * @return data points in in-order, filled concurrently for large trees.
+     */
+    public Object[] toArray() {
+        return fill(this, Order.IN, Object[]::new);
     }
 
     public static class InOrderPath<T> implements TraversalPath<T> {
@@ -182,15 +937,15 @@ public class BinaryTree<T> implements Tree<T> {
         @Override
         public List<T> recursive(BinaryTree<T> tree) {
             final var path = new LinkedList<T>();
-            recursive(tree.root, path);
+            recursive(tree.root, tree.mirrored, path);
             return path;
         }
 
-        private void recursive(BinaryTreeNode<T> n, List<T> path) {
+        private void recursive(BinaryTreeNode<T> n, boolean mirrored, List<T> path) {
             if (n != null) {
-                recursive(n.left,  path);   // go left.
-                path.add(n.data);           // go up.
-                recursive(n.right, path);   // go right.
+                recursive(leftOf(n, mirrored),  mirrored, path);    // go left.
+                path.add(n.data);                                   // go up.
+                recursive(rightOf(n, mirrored), mirrored, path);    // go right.
             }
         }
 
@@ -198,20 +953,143 @@ public class BinaryTree<T> implements Tree<T> {
         public List<T> iterative(BinaryTree<T> tree) {
             if (tree == null || tree.root == null) return Collections.emptyList();
             var n = tree.root;
+            final var mirrored = tree.mirrored;
             final var stack = new ArrayDeque<BinaryTreeNode<T>>();
             final var path = new LinkedList<T>();
             while (!stack.isEmpty() || n != null) {
                 if (n != null) {
                     stack.push(n);
-                    n = n.left;         // go left.
+                    n = leftOf(n, mirrored);    // go left.
                 } else {
-                    n = stack.pop();    // go up.
+                    n = stack.pop();            // go up.
                     path.add(n.data);
-                    n = n.right;        // go right.
+                    n = rightOf(n, mirrored);   // go right.
                 }
             }
             return path;
         }
+
+        @Override
+        public Iterator<T> iterator(BinaryTree<T> tree) {
+            return tree == null ? Collections.emptyIterator() : new InOrderIterator<>(tree.root, tree.mirrored);
+        }
+
+        /**
+         * Morris traversal: before descending left, each node is threaded to from the null {@code right} link of its
+         * in-order predecessor, and that link is restored once the thread leads back up. Needs O(1) extra space and
+         * allocates nothing, but the tree must not be read or modified by anyone else while the visit runs. A mirrored
+         * tree threads through the logical sides, so the physical left links are borrowed instead.
+         * @param action receives each data point in in-order; if it throws, the remaining links are still restored.
+         */
+        public void morris(BinaryTree<T> tree, Consumer<? super T> action) {
+            if (tree == null) return;
+            var n = tree.root;
+            final var m = tree.mirrored;
+            RuntimeException failure = null;
+            while (n != null) {
+                final var left = leftOf(n, m);
+                if (left != null) {
+                    var pred = left;
+                    while (rightOf(pred, m) != null && rightOf(pred, m) != n) pred = rightOf(pred, m);
+                    if (rightOf(pred, m) == null) {
+                        setRightOf(pred, n, m);     // thread, then go left.
+                        n = left;
+                        continue;
+                    }
+                    setRightOf(pred, null, m);      // left subtree done, restore the link.
+                }
+                if (failure == null) {
+                    try {
+                        action.accept(n.data);  // go up.
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    }
+                }
+                n = rightOf(n, m);                  // go right, possibly along a thread.
+            }
+            if (failure != null) throw failure;
+        }
+
+        private static <T> void setRightOf(BinaryTreeNode<T> n, BinaryTreeNode<T> child, boolean mirrored) {
+            if (mirrored) n.left  = child;
+            else          n.right = child;
+        }
+
+        @Override
+        public Object[] toArray(BinaryTree<T> tree) {
+            return fill(tree, Order.IN, Object[]::new);
+        }
+
+        @Override
+        public <A> A[] toArray(BinaryTree<T> tree, IntFunction<A[]> generator) {
+            return fill(tree, Order.IN, generator);
+        }
+
+        /**
+         * Iterates in-order from the first node holding {@code from}, following the {@code next} thread.
+         */
+        public Iterator<T> iterator(BinaryTree<T> tree, T from) {
+            final var n = tree == null ? null : tree.find(from);
+            return new InOrderIterator<>(n, n == null ? 0 : Integer.MAX_VALUE, n != null && tree.mirrored);
+        }
+
+        /**
+         * Follows the in-order {@code next} thread for {@code remaining} nodes, with no stack at all, or walks it
+         * backwards through the parent links when the tree is mirrored.
+         */
+        private static final class InOrderIterator<T> implements Iterator<T> {
+            private BinaryTreeNode<T> n;
+            private int remaining;
+            private final boolean mirrored;
+
+            private InOrderIterator(BinaryTreeNode<T> root, boolean mirrored) {
+                this(root == null ? null : firstOf(root, mirrored), size(root), mirrored);
+            }
+
+            private InOrderIterator(BinaryTreeNode<T> first, int remaining, boolean mirrored) {
+                this.n = first;
+                this.remaining = remaining;
+                this.mirrored = mirrored;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return n != null && remaining > 0;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                final var data = n.data;
+                n = --remaining == 0 ? null : successorOf(n, mirrored);
+                return data;
+            }
+        }
+
+        /**
+         * Walks in-order with an explicit stack, for when the {@code next} threads cannot be trusted.
+         */
+        private static final class StackIterator<T> {
+            private final ArrayDeque<BinaryTreeNode<T>> stack = new ArrayDeque<>();
+
+            private StackIterator(BinaryTreeNode<T> root) {
+                pushLeft(root);
+            }
+
+            private void pushLeft(BinaryTreeNode<T> n) {
+                for (; n != null; n = n.left) stack.push(n);   // go left.
+            }
+
+            private boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            private BinaryTreeNode<T> nextNode() {
+                final var n = stack.pop();                      // go up.
+                pushLeft(n.right);                              // go right.
+                return n;
+            }
+        }
     }
 
     public static class PreOrderPath<T> implements TraversalPath<T> {
@@ -219,31 +1097,75 @@ public class BinaryTree<T> implements Tree<T> {
         @Override
         public List<T> recursive(BinaryTree<T> tree) {
             final var path = new LinkedList<T>();
-            recursive(tree.root, path);
+            recursive(tree.root, tree.mirrored, path);
             return path;
         }
 
-        private void recursive(BinaryTreeNode<T> n, List<T> path) {
+        private void recursive(BinaryTreeNode<T> n, boolean mirrored, List<T> path) {
             if (n != null) {
-                path.add(n.data);           // go up.
-                recursive(n.left,  path);   // go left.
-                recursive(n.right, path);   // go right.
+                path.add(n.data);                                   // go up.
+                recursive(leftOf(n, mirrored),  mirrored, path);    // go left.
+                recursive(rightOf(n, mirrored), mirrored, path);    // go right.
             }
         }
 
         @Override
         public List<T> iterative(BinaryTree<T> tree) {
             if (tree == null || tree.root == null) return Collections.emptyList();
+            final var mirrored = tree.mirrored;
             final var stack = new ArrayDeque<>(List.of(tree.root));
             final var path = new LinkedList<T>();
             while (!stack.isEmpty()) {
                 final var n = stack.pop();
                 path.add(n.data);
-                if (n.right != null) stack.push(n.right);
-                if (n.left  != null) stack.push(n.left);
+                final var left = leftOf(n, mirrored);
+                final var right = rightOf(n, mirrored);
+                if (right != null) stack.push(right);
+                if (left  != null) stack.push(left);
             }
             return path;
         }
+
+        @Override
+        public Iterator<T> iterator(BinaryTree<T> tree) {
+            return tree == null ? Collections.emptyIterator() : new PreOrderIterator<>(tree.root, tree.mirrored);
+        }
+
+        @Override
+        public Object[] toArray(BinaryTree<T> tree) {
+            return fill(tree, Order.PRE, Object[]::new);
+        }
+
+        @Override
+        public <A> A[] toArray(BinaryTree<T> tree, IntFunction<A[]> generator) {
+            return fill(tree, Order.PRE, generator);
+        }
+
+        private static final class PreOrderIterator<T> implements Iterator<T> {
+            private final ArrayDeque<BinaryTreeNode<T>> stack = new ArrayDeque<>();
+            private final boolean mirrored;
+
+            private PreOrderIterator(BinaryTreeNode<T> root, boolean mirrored) {
+                this.mirrored = mirrored;
+                if (root != null) stack.push(root);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (stack.isEmpty()) throw new NoSuchElementException();
+                final var n = stack.pop();
+                final var left = leftOf(n, mirrored);
+                final var right = rightOf(n, mirrored);
+                if (right != null) stack.push(right);
+                if (left  != null) stack.push(left);
+                return n.data;
+            }
+        }
     }
 
     public static class PostOrderPath<T> implements TraversalPath<T> {
@@ -251,77 +1173,492 @@ public class BinaryTree<T> implements Tree<T> {
         @Override
         public List<T> recursive(BinaryTree<T> tree) {
             final var path = new LinkedList<T>();
-            recursive(tree.root, path);
+            recursive(tree.root, tree.mirrored, path);
             return path;
         }
 
-        private void recursive(BinaryTreeNode<T> n, List<T> path) {
+        private void recursive(BinaryTreeNode<T> n, boolean mirrored, List<T> path) {
             if (n != null) {
-                recursive(n.left,  path);   // go left.
-                recursive(n.right, path);   // go right.
-                path.add(n.data);           // go up.
+                recursive(leftOf(n, mirrored),  mirrored, path);    // go left.
+                recursive(rightOf(n, mirrored), mirrored, path);    // go right.
+                path.add(n.data);                                   // go up.
             }
         }
 
         @Override
         public List<T> iterative(BinaryTree<T> tree) {
             if (tree == null || tree.root == null) return Collections.emptyList();
+            final var mirrored = tree.mirrored;
             final var stack = new ArrayDeque<>(List.of(tree.root));
             final var path = new LinkedList<T>();
             while (!stack.isEmpty()) {
                 final var n = stack.pop();
-                if (n.left  != null) stack.push(n.left);
-                if (n.right != null) stack.push(n.right);
+                final var left = leftOf(n, mirrored);
+                final var right = rightOf(n, mirrored);
+                if (left  != null) stack.push(left);
+                if (right != null) stack.push(right);
                 path.push(n.data);
             }
             return path;
         }
+
+        @Override
+        public Iterator<T> iterator(BinaryTree<T> tree) {
+            return tree == null ? Collections.emptyIterator() : new PostOrderIterator<>(tree.root, tree.mirrored);
+        }
+
+        @Override
+        public Object[] toArray(BinaryTree<T> tree) {
+            return fill(tree, Order.POST, Object[]::new);
+        }
+
+        @Override
+        public <A> A[] toArray(BinaryTree<T> tree, IntFunction<A[]> generator) {
+            return fill(tree, Order.POST, generator);
+        }
+
+        private static final class PostOrderIterator<T> implements Iterator<T> {
+            private final ArrayDeque<BinaryTreeNode<T>> stack = new ArrayDeque<>();
+            private final boolean mirrored;
+
+            private PostOrderIterator(BinaryTreeNode<T> root, boolean mirrored) {
+                this.mirrored = mirrored;
+                pushFirstLeaf(root);
+            }
+
+            private void pushFirstLeaf(BinaryTreeNode<T> n) {
+                while (n != null) {
+                    stack.push(n);
+                    n = leftOf(n, mirrored) != null ? leftOf(n, mirrored) : rightOf(n, mirrored);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (stack.isEmpty()) throw new NoSuchElementException();
+                final var n = stack.pop();
+                final var parent = stack.peek();
+                if (parent != null && leftOf(parent, mirrored) == n) pushFirstLeaf(rightOf(parent, mirrored));  // go right.
+                return n.data;
+            }
+        }
     }
 
+    /**
+     * Adds the values of overlapping nodes, counting a missing node as zero.
+     * @return the merged tree, or {@code null} if either tree is empty.
+     */
     public static BinaryTree<Integer> merge(BinaryTree<Integer> first, BinaryTree<Integer> second) {
         if (first == null || first.isEmpty() || second == null || second.isEmpty()) return null;
-        final var merged = new BinaryTree<Integer>();
-        merged.root = merge(first.root, second.root);
+        return merge(first, second, (a, b) -> (a == null ? 0 : a) + (b == null ? 0 : b));
+    }
+
+    /**
+     * Overlays the two trees: the result has a node wherever either tree has one, holding the combined data points.
+     * Subtrees above the parallel threshold, judged by the cached {@code size} fields, are merged by concurrent
+     * fork-join tasks.
+     * @param combiner receives {@code null} for the side that has no node at that position.
+     * @return the merged tree, empty if both trees are empty or {@code null}.
+     */
+    public static <A, B, C> BinaryTree<C> merge(BinaryTree<A> first, BinaryTree<B> second,
+                                                BiFunction<? super A, ? super B, ? extends C> combiner) {
+        final var merged = new BinaryTree<C>();
+        merged.root = new Merger<A, B, C>(combiner, false, first != null && first.mirrored, second != null && second.mirrored)
+                .merge(first == null ? null : first.root, second == null ? null : second.root);
         return merged;
     }
 
-    private static BinaryTreeNode<Integer> merge(BinaryTreeNode<Integer> n0, BinaryTreeNode<Integer> n1) {
-        if (n0 == null && n1 == null) return null;
-        final var n2 = new BinaryTreeNode<>((n0 == null ? 0 : n0.data) + (n1 == null ? 0 : n1.data));
-        n2.left  = merge(n0 == null ? null : n0.left,  n1 == null ? null : n1.left);
-        n2.right = merge(n0 == null ? null : n0.right, n1 == null ? null : n1.right);
-        return n2;
+    /**
+     * Like {@link #merge(BinaryTree, BinaryTree, BiFunction)}, but stores the combined data points in the nodes of
+     * {@code first} and only allocates nodes where {@code second} has one and {@code first} has not. Every reused node
+     * is relinked, so a mirrored {@code first} comes out materialized.
+     * @return {@code first}, which now holds the merged tree.
+     */
+    public static <A, B> BinaryTree<A> mergeInPlace(BinaryTree<A> first, BinaryTree<B> second,
+                                                    BiFunction<? super A, ? super B, ? extends A> combiner) {
+        first.root = new Merger<A, B, A>(combiner, true, first.mirrored, second != null && second.mirrored)
+                .merge(first.root, second == null ? null : second.root);
+        first.mirrored = false;
+        if (first.index != null) first.reindex();
+        return first;
     }
 
+    /**
+     * Reads both sources through their logical sides and always builds a physically oriented result.
+     */
+    private static final class Merger<A, B, C> {
+        private final BiFunction<? super A, ? super B, ? extends C> combiner;
+        private final boolean inPlace, mirrored0, mirrored1;
 
-    public boolean isSymmetric() {
-        return root == null || isSymmetric(root.left, root.right);
+        private Merger(BiFunction<? super A, ? super B, ? extends C> combiner, boolean inPlace,
+                       boolean mirrored0, boolean mirrored1) {
+            this.combiner  = Objects.requireNonNull(combiner);
+            this.inPlace   = inPlace;
+            this.mirrored0 = mirrored0;
+            this.mirrored1 = mirrored1;
+        }
+
+        private BinaryTreeNode<C> merge(BinaryTreeNode<A> n0, BinaryTreeNode<B> n1) {
+            if (n0 == null && n1 == null) return null;
+            final var root = node(n0, n1);
+            if (Math.max(size(n0), size(n1)) < PARALLEL_THRESHOLD) sequential(n0, n1, root);
+            else new MergeTask<>(this, n0, n1, root).invoke();
+            return root;
+        }
+
+        /**
+         * Reuses {@code n0} in place mode; its children must have been read before, as they get relinked.
+         * @return the node for the pair, or {@code null} if both are missing.
+         */
+        @SuppressWarnings("unchecked")
+        private BinaryTreeNode<C> node(BinaryTreeNode<A> n0, BinaryTreeNode<B> n1) {
+            if (n0 == null && n1 == null) return null;
+            final C data = combiner.apply(n0 == null ? null : n0.data, n1 == null ? null : n1.data);
+            if (!inPlace || n0 == null) return new BinaryTreeNode<>(data);
+            final var n = (BinaryTreeNode<C>) (BinaryTreeNode<?>) n0;   // A is C in place mode.
+            n.data = data;
+            return n;
+        }
+
+        /**
+         * Creates the merged nodes below {@code merged} in pre-order from an explicit stack of source pairs, then
+         * refreshes them in reverse so every node sees up-to-date children, and threads the finished subtree.
+         */
+        private void sequential(BinaryTreeNode<A> n0, BinaryTreeNode<B> n1, BinaryTreeNode<C> merged) {
+            final var created = new ArrayList<BinaryTreeNode<C>>();
+            final var stack   = new ArrayDeque<MergeFrame<A, B, C>>();
+            stack.push(new MergeFrame<>(n0, n1, merged));
+            while (!stack.isEmpty()) {
+                final var f = stack.pop();
+                final var n2 = f.merged;
+                created.add(n2);
+                final BinaryTreeNode<A> l0 = f.n0 == null ? null :  leftOf(f.n0, mirrored0);
+                final BinaryTreeNode<A> r0 = f.n0 == null ? null : rightOf(f.n0, mirrored0);
+                final BinaryTreeNode<B> l1 = f.n1 == null ? null :  leftOf(f.n1, mirrored1);
+                final BinaryTreeNode<B> r1 = f.n1 == null ? null : rightOf(f.n1, mirrored1);
+                n2.left  = node(l0, l1);
+                n2.right = node(r0, r1);
+                if (n2.right != null) { n2.right.parent = n2; stack.push(new MergeFrame<>(r0, r1, n2.right)); }
+                if (n2.left  != null) {  n2.left.parent = n2; stack.push(new MergeFrame<>(l0, l1, n2.left));  }
+            }
+            for (int i = created.size() - 1; i >= 0; i--) refresh(created.get(i));
+            thread(merged);
+        }
+    }
+
+    /**
+     * A pair of source nodes, either possibly {@code null}, and the already created node they merge into.
+     */
+    private static final class MergeFrame<A, B, C> {
+        private final BinaryTreeNode<A> n0;
+        private final BinaryTreeNode<B> n1;
+        private final BinaryTreeNode<C> merged;
+
+        private MergeFrame(BinaryTreeNode<A> n0, BinaryTreeNode<B> n1, BinaryTreeNode<C> merged) {
+            this.n0     = n0;
+            this.n1     = n1;
+            this.merged = merged;
+        }
     }
 
-    private static <T> boolean isSymmetric(BinaryTreeNode<T> n0, BinaryTreeNode<T> n1) {
-        if (n0 == null && n1 == null) return true;
-        return (n0 != null && n1 != null)
-                && n0.equals(n1)
-                && isSymmetric(n0.left, n1.right)
-                && isSymmetric(n0.right, n1.left);
+    private static final class MergeTask<A, B, C> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Merger<A, B, C> merger;
+        private final BinaryTreeNode<A> n0;
+        private final BinaryTreeNode<B> n1;
+        private final BinaryTreeNode<C> merged;
+
+        private MergeTask(Merger<A, B, C> merger, BinaryTreeNode<A> n0, BinaryTreeNode<B> n1, BinaryTreeNode<C> merged) {
+            this.merger = merger;
+            this.n0     = n0;
+            this.n1     = n1;
+            this.merged = merged;
+        }
+
+        /**
+         * Forks the smaller pair of children and keeps descending into the larger one, like {@link FillTask}, then
+         * links the nodes on that path bottom-up once every forked subtree is finished and threaded.
+         */
+        @Override
+        protected void compute() {
+            final var forked = new ArrayList<MergeTask<A, B, C>>();
+            final var path   = new ArrayList<BinaryTreeNode<C>>();
+            var a = n0;
+            var b = n1;
+            var m = merged;
+            while (Math.max(size(a), size(b)) >= PARALLEL_THRESHOLD) {
+                final BinaryTreeNode<A> l0 = a == null ? null :  leftOf(a, merger.mirrored0);
+                final BinaryTreeNode<A> r0 = a == null ? null : rightOf(a, merger.mirrored0);
+                final BinaryTreeNode<B> l1 = b == null ? null :  leftOf(b, merger.mirrored1);
+                final BinaryTreeNode<B> r1 = b == null ? null : rightOf(b, merger.mirrored1);
+                m.left  = merger.node(l0, l1);
+                m.right = merger.node(r0, r1);
+                path.add(m);
+                final MergeTask<A, B, C> task;
+                if (Math.max(size(l0), size(l1)) <= Math.max(size(r0), size(r1))) {
+                    task = new MergeTask<>(merger, l0, l1, m.left);
+                    a = r0;
+                    b = r1;
+                    m = m.right;
+                } else {
+                    task = new MergeTask<>(merger, r0, r1, m.right);
+                    a = l0;
+                    b = l1;
+                    m = m.left;
+                }
+                if (task.merged != null) {
+                    task.fork();
+                    forked.add(task);
+                }
+            }
+            merger.sequential(a, b, m);
+            for (final var task : forked) task.join();
+            for (int i = path.size() - 1; i >= 0; i--) {
+                final var p = path.get(i);
+                link(p, p.left, p.right);
+            }
+        }
+    }
+
+    /**
+     * A tree is symmetric exactly when it equals its mirror image, so differing cached hashes answer {@code false}
+     * in O(1). Otherwise mirrored pairs are compared from an explicit stack to rule out a collision.
+     */
+    public boolean isSymmetric() {
+        if (root == null) return true;
+        if (hash(root, false) != hash(root, true)) return false;
+        final var stack = new ArrayDeque<BinaryTreeNode<T>>();
+        if (!pushPair(stack, root.left, root.right)) return false;
+        while (!stack.isEmpty()) {
+            final var n1 = stack.pop();
+            final var n0 = stack.pop();
+            if (!n0.equals(n1)
+                    || !pushPair(stack, n0.left,  n1.right)
+                    || !pushPair(stack, n0.right, n1.left)) return false;
+        }
+        return true;
     }
 
+    /**
+     * Flips the mirror flag in O(1). Traversals, positional queries and rendering read every node's children swapped
+     * from then on; the nodes themselves stay where they are until {@link #materializeInvert()}.
+     */
     public void invert() {
-        root = invert(root);
+        mirrored = !mirrored;
     }
 
-    private static <T> BinaryTreeNode<T> invert(BinaryTreeNode<T> n) {
-        if (n == null) return null;
-        final var right = n.right;
-        n.right = invert(n.left);
-        n.left  = invert(right);
-        return n;
+    /**
+     * Swaps the children of every node from an explicit stack, so the physical layout matches the logical one, and
+     * clears the mirror flag. Does nothing unless this tree is mirrored.
+     */
+    public void materializeInvert() {
+        if (!mirrored) return;
+        final var stack = new ArrayDeque<BinaryTreeNode<T>>();
+        if (root != null) stack.push(root);
+        while (!stack.isEmpty()) {
+            final var n = stack.pop();
+            final var right = n.right;
+            n.right = n.left;
+            n.left  = right;
+            final long hash = n.hash;     // the mirror image of a subtree is now its physical layout.
+            n.hash       = n.mirrorHash;
+            n.mirrorHash = hash;
+            if (n.left  != null) stack.push(n.left);
+            if (n.right != null) stack.push(n.right);
+        }
+        thread(root);
+        mirrored = false;
+    }
+
+    /**
+     * Hash of every missing child, chosen so that no empty subtree collides with a leaf whose data hashes to zero.
+     */
+    private static final long EMPTY_HASH = 0x2545F4914F6CDD1DL;
+
+    /**
+     * Merkle hash of the subtree rooted at {@code n} as read in the given orientation, as cached by {@link #refresh}.
+     */
+    private static <T> long hash(BinaryTreeNode<T> n, boolean mirrored) {
+        if (n == null) return EMPTY_HASH;
+        return mirrored ? n.mirrorHash : n.hash;
+    }
+
+    private static long combine(int data, long left, long right) {
+        return mix(mix(data + left * 0x9E3779B97F4A7C15L) ^ right);
+    }
+
+    /**
+     * SplitMix64 finalizer, so that every input bit affects every output bit.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Compares two subtrees, each read in its own orientation, pair by pair from an explicit stack. Pairs whose cached
+     * hashes differ fail at once, and a subtree compared with itself in the same orientation is skipped.
+     */
+    private static boolean sameShape(BinaryTreeNode<?> a, boolean mirroredA, BinaryTreeNode<?> b, boolean mirroredB) {
+        final var stack = new ArrayDeque<BinaryTreeNode<?>>();
+        if (!pushPair(stack, a, b)) return false;
+        while (!stack.isEmpty()) {
+            final var n1 = stack.pop();
+            final var n0 = stack.pop();
+            if (n0 == n1 && mirroredA == mirroredB) continue;
+            if (hash(n0, mirroredA) != hash(n1, mirroredB)
+                    || !Objects.equals(n0.data, n1.data)
+                    || !pushPair(stack, rightOf(n0, mirroredA), rightOf(n1, mirroredB))
+                    || !pushPair(stack, leftOf(n0, mirroredA),  leftOf(n1, mirroredB))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code false} if exactly one of the pair is missing; pushes the pair if both are present.
+     */
+    private static <N> boolean pushPair(ArrayDeque<N> stack, N n0, N n1) {
+        if (n0 == null || n1 == null) return n0 == n1;
+        stack.push(n0);
+        stack.push(n1);
+        return true;
+    }
+
+    /**
+     * Two trees are equal when they have the same shape and equal data points in the same positions, as read through
+     * their current orientation. Differing root hashes answer in O(1).
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BinaryTree)) return false;
+        final var that = (BinaryTree<?>) o;
+        return size() == that.size() && sameShape(root, mirrored, that.root, that.mirrored);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash(root, mirrored));
+    }
+
+    /**
+     * Scans this tree for a node whose subtree hash matches the root hash of {@code other}, verifying candidates
+     * structurally.
+     * @return {@code true} if some subtree of this tree equals {@code other}; the empty tree is a subtree of any tree.
+     */
+    public boolean isSubtree(BinaryTree<T> other) {
+        if (other == null || other.root == null) return true;
+        final long target = hash(other.root, other.mirrored);
+        final var stack = new ArrayDeque<BinaryTreeNode<T>>();
+        if (root != null) stack.push(root);
+        while (!stack.isEmpty()) {
+            final var n = stack.pop();
+            if (n.size < other.size()) continue;                // too small to hold it, and so is everything below.
+            if (hash(n, mirrored) == target && sameShape(n, mirrored, other.root, other.mirrored)) {
+                return true;
+            }
+            if (n.right != null) stack.push(n.right);
+            if (n.left  != null) stack.push(n.left);
+        }
+        return false;
+    }
+
+    /**
+     * One position at which two trees differ. When only one tree has a node there, its whole subtree is the
+     * difference and nothing below it is reported separately. It reads the nodes live, so it is undefined once either
+     * tree is modified.
+     */
+    public static final class Difference<T> {
+        private final String path;
+        private final BinaryTreeNode<T> first, second;
+
+        private Difference(String path, BinaryTreeNode<T> first, BinaryTreeNode<T> second) {
+            this.path   = path;
+            this.first  = first;
+            this.second = second;
+        }
+
+        /**
+         * @return the steps from the root, {@code 'L'} or {@code 'R'} for each; empty for the root itself.
+         */
+        public String path() {
+            return path;
+        }
+
+        /**
+         * @return the data point of the first tree at this position, or {@code null} if it has no node there.
+         */
+        public T first() {
+            return first == null ? null : first.data;
+        }
+
+        public T second() {
+            return second == null ? null : second.data;
+        }
+
+        /**
+         * @return the number of nodes the first tree has in the subtree at this position.
+         */
+        public int firstSize() {
+            return size(first);
+        }
+
+        public int secondSize() {
+            return size(second);
+        }
+
+        @Override
+        public String toString() {
+            return "/" + path + ": " + first() + " (" + firstSize() + ") -> " + second() + " (" + secondSize() + ")";
+        }
+    }
+
+    /**
+     * Descends only into positions whose subtree hashes differ, so two trees that differ along a few paths cost
+     * O(changes * height), however large they are. Equal hashes are trusted to mean equal subtrees.
+     * @return the differing positions in pre-order, empty if the trees are equal.
+     */
+    public static <T> List<Difference<T>> diff(BinaryTree<T> first, BinaryTree<T> second) {
+        final boolean m0 = first  != null && first.mirrored;
+        final boolean m1 = second != null && second.mirrored;
+        final var diffs = new ArrayList<Difference<T>>();
+        final var stack = new ArrayDeque<Difference<T>>();
+        pushDifferent(stack, first == null ? null : first.root, m0, second == null ? null : second.root, m1, "");
+        while (!stack.isEmpty()) {
+            final var d = stack.pop();
+            final var n0 = d.first;
+            final var n1 = d.second;
+            if (n0 == null || n1 == null || !Objects.equals(n0.data, n1.data)) diffs.add(d);
+            if (n0 == null || n1 == null) continue;
+            pushDifferent(stack, rightOf(n0, m0), m0, rightOf(n1, m1), m1, d.path + 'R');
+            pushDifferent(stack, leftOf(n0, m0),  m0, leftOf(n1, m1),  m1, d.path + 'L');
+        }
+        return diffs;
+    }
+
+    /**
+     * Pushes the pair as a candidate difference unless both subtrees hash the same.
+     */
+    private static <T> void pushDifferent(ArrayDeque<Difference<T>> stack, BinaryTreeNode<T> n0, boolean m0,
+                                          BinaryTreeNode<T> n1, boolean m1, String path) {
+        if (hash(n0, m0) != hash(n1, m1)) stack.push(new Difference<>(path, n0, n1));
     }
 
     static class BinaryTreeNode<T> {
-        private BinaryTreeNode<T> left, right, parent, next;
-        private int size = 1;
-        private T data;
+        BinaryTreeNode<T> left, right, parent, next;
+        int size = 1, height;
+        boolean balanced = true;
+        /**
+         * Merkle hashes of this subtree and of its mirror image.
+         */
+        long hash, mirrorHash;
+        T data;
 
         BinaryTreeNode(T data) {
             this.data = data;
@@ -350,19 +1687,197 @@ public class BinaryTree<T> implements Tree<T> {
         }
     }
 
+    /**
+     * Open-addressing (linear probing) multimap from data point to the node currently holding it.
+     * Duplicate data points occupy separate slots, and lookups return the first match on the probe sequence.
+     * Entries are keyed by {@code node.data}, so a node must be removed before its data point changes.
+     */
+    private static final class NodeIndex<T> {
+        private static final int INITIAL_CAPACITY = 16;
+        private BinaryTreeNode<T>[] slots;
+        private int[] hashes;
+        private int count;
+
+        private NodeIndex() {
+            allocate(INITIAL_CAPACITY);
+        }
+
+        private void clear() {
+            allocate(INITIAL_CAPACITY);
+            count = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void allocate(int capacity) {
+            slots  = (BinaryTreeNode<T>[]) new BinaryTreeNode<?>[capacity];
+            hashes = new int[capacity];
+        }
+
+        private static int hash(Object data) {
+            final int h = Objects.hashCode(data) * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private BinaryTreeNode<T> get(Object data) {
+            final int h = hash(data), mask = slots.length - 1;
+            for (int i = h & mask; slots[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == h && Objects.equals(slots[i].data, data)) return slots[i];
+            }
+            return null;
+        }
+
+        private void put(BinaryTreeNode<T> n) {
+            if (2 * (count + 1) > slots.length) resize(slots.length << 1);
+            insert(n, hash(n.data));
+            count++;
+        }
+
+        private void insert(BinaryTreeNode<T> n, int h) {
+            final int mask = slots.length - 1;
+            int i = h & mask;
+            while (slots[i] != null) i = (i + 1) & mask;
+            slots[i]  = n;
+            hashes[i] = h;
+        }
+
+        private void remove(BinaryTreeNode<T> n) {
+            final int mask = slots.length - 1;
+            int i = hash(n.data) & mask;
+            while (slots[i] != n) {
+                if (slots[i] == null) return;
+                i = (i + 1) & mask;
+            }
+            // backward-shift deletion keeps every probe sequence intact without tombstones.
+            for (int j = (i + 1) & mask; slots[j] != null; j = (j + 1) & mask) {
+                if (((j - hashes[j]) & mask) >= ((j - i) & mask)) {
+                    slots[i]  = slots[j];
+                    hashes[i] = hashes[j];
+                    i = j;
+                }
+            }
+            slots[i] = null;
+            count--;
+        }
+
+        private void resize(int capacity) {
+            final var oldSlots  = slots;
+            final var oldHashes = hashes;
+            allocate(capacity);
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] != null) insert(oldSlots[i], oldHashes[i]);
+            }
+        }
+    }
+
+    /**
+     * Draws the whole tree, as {@link #render(Appendable, int, int)} without limits.
+     */
     @Override
     public String toString() {
         final var sb = new StringBuilder();
-        toString(root, "", sb, true);
+        try {
+            render(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);          // a StringBuilder never throws.
+        }
         return sb.toString();
     }
 
-    private static <T> void toString(BinaryTreeNode<T> n, String pre, StringBuilder sb, boolean isLeft) {
-        if (n == null) sb.append("Empty Tree.");
-        else {
-            if (n.right != null) toString(n.right, pre + (isLeft ? "│   " : "    "), sb, false);
-            sb.append(pre).append(isLeft ? "└── " : "┌── ").append(n).append("\n");
-            if (n.left  != null) toString(n.left,  pre + (isLeft ? "    " : "│   "), sb, true);
+    public void render(Appendable out) throws IOException {
+        render(out, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes the drawing to {@code out} one line at a time, right subtree above node above left subtree. Indentation
+     * is copied from a single prefix buffer that is rewritten in place as the walk moves between depths, so memory
+     * stays O(height) whatever the size of the tree.
+     * @param maxDepth deepest level drawn, the root being level 0; each subtree below it is drawn as one summary line
+     *                 with its size.
+     * @param maxNodes most nodes drawn; once reached, one last line counts the nodes left out.
+     */
+    public void render(Appendable out, int maxDepth, int maxNodes) throws IOException {
+        if (maxDepth < 0 || maxNodes < 0) throw new IllegalArgumentException("Limits must not be negative.");
+        if (root == null) out.append("Empty Tree.");
+        else new Renderer<T>(out, mirrored, maxDepth, maxNodes).render(root);
+    }
+
+    private static final class Renderer<T> {
+        private static final int SUBTREE = 0, LINE = 1, SUMMARY = 2;
+        private static final String BAR = "│   ", BLANK = "    ";
+        private final Appendable out;
+        private final boolean mirrored;
+        private final int maxDepth, maxNodes;
+        private char[] prefix = new char[64];
+
+        private Renderer(Appendable out, boolean mirrored, int maxDepth, int maxNodes) {
+            this.out      = out;
+            this.mirrored = mirrored;
+            this.maxDepth = maxDepth;
+            this.maxNodes = maxNodes;
+        }
+
+        /**
+         * Expands frames from an explicit stack. A frame at depth {@code d} writes its own four-character segment at
+         * {@code 4 * (d - 1)} when popped; everything before it still belongs to its ancestors, because only their
+         * descendants have been drawn since.
+         */
+        private void render(BinaryTreeNode<T> root) throws IOException {
+            final var stack = new ArrayDeque<RenderFrame<T>>();
+            stack.push(new RenderFrame<>(root, 0, BLANK, true, SUBTREE));
+            int drawn = 0, summarized = 0;
+            while (!stack.isEmpty()) {
+                final var f = stack.pop();
+                final var n = f.node;
+                if (f.kind != LINE && f.depth > 0) segment(f.depth, f.segment);
+                if (f.kind == SUMMARY) {
+                    line(f.depth, f.isLeft, "… (" + n.size + " nodes)");
+                    summarized += n.size;
+                } else if (f.kind == LINE) {
+                    if (drawn == maxNodes) {
+                        out.append("… ").append(String.valueOf(root.size - drawn - summarized)).append(" more nodes\n");
+                        return;
+                    }
+                    line(f.depth, f.isLeft, String.valueOf(n.data));
+                    drawn++;
+                } else {
+                    final var left  = leftOf(n, mirrored);
+                    final var right = rightOf(n, mirrored);
+                    final int kind  = f.depth < maxDepth ? SUBTREE : SUMMARY;
+                    if (left  != null) stack.push(new RenderFrame<>(left,  f.depth + 1, f.isLeft ? BLANK : BAR, true,  kind));
+                    stack.push(new RenderFrame<>(n, f.depth, null, f.isLeft, LINE));
+                    if (right != null) stack.push(new RenderFrame<>(right, f.depth + 1, f.isLeft ? BAR : BLANK, false, kind));
+                }
+            }
+        }
+
+        private void segment(int depth, String segment) {
+            if (4 * depth > prefix.length) prefix = Arrays.copyOf(prefix, Math.max(4 * depth, prefix.length << 1));
+            segment.getChars(0, 4, prefix, 4 * (depth - 1));
+        }
+
+        private void line(int depth, boolean isLeft, String text) throws IOException {
+            if (out instanceof Writer) ((Writer) out).write(prefix, 0, 4 * depth);
+            else out.append(CharBuffer.wrap(prefix, 0, 4 * depth));
+            out.append(isLeft ? "└── " : "┌── ").append(text).append('\n');
+        }
+    }
+
+    /**
+     * A subtree still to expand or summarize, or the line of its root still to draw. {@code segment} is the part of
+     * the indentation its parent chose for it.
+     */
+    private static final class RenderFrame<T> {
+        private final BinaryTreeNode<T> node;
+        private final int depth, kind;
+        private final String segment;
+        private final boolean isLeft;
+
+        private RenderFrame(BinaryTreeNode<T> node, int depth, String segment, boolean isLeft, int kind) {
+            this.node    = node;
+            this.depth   = depth;
+            this.segment = segment;
+            this.isLeft  = isLeft;
+            this.kind    = kind;
         }
     }
 
@@ -0,0 +1,462 @@
+package com.sharma.study.data_structures.trees;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Command-line benchmarks behind the performance claims made for {@link BinaryTree} and the classes built on it.
+ * Run as {@code java -Xmx4g BinaryTreeBenchmark [case [nodes]]}, where {@code case} is one of the names below or
+ * {@code all} (the default), and {@code nodes} overrides the size the case is run at. Every case prints one line per
+ * measurement; times are the best of a few runs after a warm-up run, so they are wall-clock figures for one machine,
+ * not guarantees.
+ */
+public class BinaryTreeBenchmark {
+    private static final int RUNS = 3;
+    private static final List<String> CASES = List.of("remove", "stack", "merkle", "sync", "render", "serializer", "snapshot");
+
+    public static void main(String[] args) throws Exception {
+        final var name  = args.length > 0 ? args[0] : "all";
+        final int nodes = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        final boolean all = name.equals("all");
+        if (!all && !CASES.contains(name)) throw new IllegalArgumentException("Unknown benchmark " + name + ".");
+        if (all || name.equals("remove")) remove(nodes > 0 ? nodes : 1 << 22);
+        if (all || name.equals("stack"))  stack(nodes > 0 ? nodes : 10_000_000);
+        if (all || name.equals("merkle")) merkle(nodes > 0 ? nodes : 1_000_000);
+        if (all || name.equals("sync"))   sync(nodes > 0 ? nodes : 2_000_000);
+        if (all || name.equals("render")) render(nodes > 0 ? nodes : 1_000_000);
+        if (all || name.equals("serializer")) serializer(nodes > 0 ? nodes : 10_000_000);
+        if (all || name.equals("snapshot"))   snapshot(nodes > 0 ? nodes : 10_000_000);
+    }
+
+    /**
+     * @return the best time, in nanoseconds, of {@link #RUNS} runs of {@code run} after one unmeasured run. The
+     * garbage of one run is collected before the next starts, so a run does not pay for its predecessors.
+     */
+    private static long best(Runnable run) {
+        run.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            System.gc();
+            final long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * @return the best time of {@code run} in milliseconds, or the error that stopped it.
+     */
+    private static String millis(Runnable run) {
+        try {
+            return String.format("%,.0f ms", best(run) / 1e6);
+        } catch (StackOverflowError e) {
+            return "StackOverflowError";
+        }
+    }
+
+    private static List<Integer> range(int count) {
+        final var values = new ArrayList<Integer>(count);
+        for (int i = 0; i < count; i++) values.add(i);
+        return values;
+    }
+
+    /**
+     * Deletes the same number of random data points from indexed trees of growing size, so finding a node is O(1)
+     * and what remains is the delete itself. Its cost should follow the height, which grows by one per doubling,
+     * while the post-order size pass every delete used to end with grows with the node count.
+     */
+    private static void remove(int maxNodes) {
+        final int deletes = 10_000;
+        final var random = new Random(2);
+        System.out.printf("remove: %,d deletes per size from indexed trees%n", deletes);
+        System.out.printf("%12s %7s %14s %18s%n", "nodes", "height", "ns/delete", "ns/full size pass");
+        for (int n = 1 << 14; n <= maxNodes; n <<= 2) {
+            final var values = range(n);
+            final var victims = new ArrayList<>(values);
+            Collections.shuffle(victims, random);
+            final var trees = new ArrayList<BinaryTree<Integer>>();
+            for (int i = 0; i <= RUNS; i++) trees.add(new BinaryTree<>(values, true));
+            final var next = trees.iterator();
+            final long delete = best(() -> {
+                final var tree = next.next();
+                for (int i = 0; i < deletes; i++) tree.remove(victims.get(i));
+            }) / deletes;
+            final var tree = new BinaryTree<>(values);
+            final long pass = best(() -> sizes(tree.root()));
+            System.out.printf("%,12d %7d %14d %,18d%n", n, tree.height(), delete, pass);
+        }
+    }
+
+    /**
+     * The post-order pass that recomputed every size after each delete before deletes fixed only their own path.
+     */
+    private static int sizes(BinaryTree.BinaryTreeNode<?> n) {
+        return n == null ? 0 : 1 + sizes(n.left) + sizes(n.right);
+    }
+
+    /**
+     * Runs the explicit-stack merge, invert, isSymmetric and drawing of {@link BinaryTree} against the recursive
+     * versions they replaced, on a balanced and a degenerate tree of {@code nodes} nodes. Both trees are mirror images
+     * of themselves holding equal data points, so isSymmetric has to walk every node rather than stop at differing
+     * hashes: the balanced one pairs a size-balanced half with its mirror image, and the degenerate one is two chains,
+     * down the far left and the far right. A degenerate drawing grows with the square of its depth, so that one is
+     * drawn for a shorter chain.
+     */
+    private static void stack(int nodes) {
+        final int drawn = Math.min(nodes, 20_001);
+        System.out.printf("stack: %,d nodes, degenerate drawing %,d nodes, default thread stack%n", nodes, drawn);
+        System.out.printf("%-10s %-12s %20s %20s%n", "tree", "operation", "explicit stack", "recursive");
+        for (final boolean degenerate : new boolean[] { false, true }) {
+            final var label = degenerate ? "degenerate" : "balanced";
+            final var tree = symmetric(nodes / 2, degenerate);
+            final var drawTree = degenerate ? symmetric(drawn / 2, true) : tree;
+            final var out = Writer.nullWriter();
+            System.out.printf("%-10s %-12s %20s %20s%n", label, "merge",
+                    millis(() -> BinaryTree.merge(tree, tree)),
+                    millis(() -> mergeRecursive(tree.root(), tree.root())));
+            System.out.printf("%-10s %-12s %20s %20s%n", label, "isSymmetric",
+                    millis(() -> check(tree.isSymmetric())),
+                    millis(() -> check(isSymmetricRecursive(tree.root().left, tree.root().right))));
+            System.out.printf("%-10s %-12s %20s %20s%n", label, "toString",
+                    millis(() -> draw(drawTree, out)),
+                    millis(() -> drawRecursive(drawTree.root(), out)));
+            System.out.printf("%-10s %-12s %20s %20s%n", label, "invert",    // last: a failed recursive run leaves it half done.
+                    millis(() -> { tree.invert(); tree.materializeInvert(); }),
+                    millis(() -> invertRecursive(tree.root())));
+        }
+    }
+
+    /**
+     * Compares two trees of {@code nodes} data points, one of them three edits away, through their cached Merkle
+     * hashes. Hashes are kept current by every mutation, so the trees are built before the clock starts and diff only
+     * descends into the paths the edits changed. Equal trees that share no nodes still have to be verified pair by pair.
+     */
+    private static void merkle(int nodes) {
+        final var values = range(nodes);
+        final var first  = new BinaryTree<>(values);
+        final var copy   = new BinaryTree<>(values);
+        final var edited = new BinaryTree<>(values);
+        edited.remove(nodes / 3);
+        edited.add(-1);
+        edited.add(-2);
+        final var differences = BinaryTree.diff(first, edited).size();
+        System.out.printf("merkle: %,d nodes, 3 edits, %d differing positions%n", nodes, differences);
+        System.out.printf("%-24s %14s%n", "operation", "us");
+        final int calls = 1_000;                        // cheap calls are timed in batches, to get past timer noise.
+        System.out.printf("%-24s %,14.2f%n", "diff, edited",
+                best(() -> { for (int i = 0; i < calls; i++) BinaryTree.diff(first, edited); }) / 1e3 / calls);
+        System.out.printf("%-24s %,14.2f%n", "equals, edited",
+                best(() -> { for (int i = 0; i < calls; i++) first.equals(edited); }) / 1e3 / calls);
+        System.out.printf("%-24s %,14.2f%n", "diff, equal copy",
+                best(() -> { for (int i = 0; i < calls; i++) BinaryTree.diff(first, copy); }) / 1e3 / calls);
+        System.out.printf("%-24s %,14.2f%n", "equals, equal copy", best(() -> first.equals(copy)) / 1e3);
+    }
+
+    /**
+     * Pulls replicas of {@code nodes} data points that are 20 edits behind a source served over a localhost socket.
+     * Every run starts from a fresh stale replica, built before the clock starts; one connection carries all of them.
+     */
+    private static void sync(int nodes) throws IOException, InterruptedException {
+        final var values = range(nodes);
+        final var random = new Random(3);
+        final var source = new BinaryTree<>(values);
+        for (int i = 0; i < 10; i++) {
+            source.remove(random.nextInt(nodes));
+            source.add(-i);
+        }
+        final var replicas = new ArrayList<BinaryTree<Integer>>();
+        for (int i = 0; i <= RUNS; i++) replicas.add(new BinaryTree<>(values));
+        final var next = replicas.iterator();
+        final var report = new MerkleSync.Report[1];
+        final long pull;
+        try (var server = new ServerSocket(0)) {
+            final var serving = new Thread(() -> {
+                try (var socket = server.accept()) {
+                    new MerkleSync<>(source).serve(socket, BinaryTreeSerializer.INTEGERS);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            serving.start();
+            try (var transport = MerkleSync.connect(new Socket("localhost", server.getLocalPort()),
+                                                    BinaryTreeSerializer.INTEGERS)) {
+                pull = best(() -> {
+                    try {
+                        report[0] = new MerkleSync<>(next.next()).pull(transport);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            serving.join();
+        }
+        if (!replicas.get(RUNS).equals(source)) throw new AssertionError("The pulled replica differs from the source.");
+        System.out.printf("sync: %,d nodes, 20 edits, INTEGERS over localhost%n", nodes);
+        System.out.printf("%s in %,.1f ms%n", report[0], pull / 1e6);
+    }
+
+    /**
+     * Streams the drawing of a size-balanced tree of {@code nodes} data points, then the drawing of a chain a fifth as
+     * long that runs down the right, to a writer that only counts what it is given. The chain's drawing grows with the
+     * square of its length, so it is drawn once; run with a small heap, such as {@code -Xmx256m}, to see that neither
+     * drawing is held in memory.
+     */
+    private static void render(int nodes) throws IOException {
+        final var tree = new BinaryTree<>(range(nodes));
+        final var out = new CountingWriter();
+        final long drawing = best(() -> draw(tree, out)) / 1_000_000;
+        final long chars = out.count / (RUNS + 1);
+        final var builder = new BinaryTree.PreOrderBuilder<Integer>(false);
+        for (int i = nodes / 5 - 1; i >= 0; i--) builder.add(i, false, i > 0);
+        final var chain = new BinaryTree<Integer>();
+        chain.replaceRoot(builder.root());
+        out.count = 0;
+        final long start = System.nanoTime();
+        chain.render(out);
+        final long chainDrawing = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("render: max heap %,d MB%n", Runtime.getRuntime().maxMemory() >> 20);
+        System.out.printf("%-12s %12s %20s %12s%n", "tree", "nodes", "chars", "ms");
+        System.out.printf("%-12s %,12d %,20d %,12d%n", "balanced", tree.size(), chars, drawing);
+        System.out.printf("%-12s %,12d %,20d %,12d%n", "chain", chain.size(), out.count, chainDrawing);
+    }
+
+    /**
+     * Writes a tree of {@code nodes} Integers to a temporary file with {@link BinaryTreeSerializer#INTEGERS} and reads
+     * it back. Both directions walk or allocate every node, which is where the time goes rather than the I/O.
+     */
+    private static void serializer(int nodes) throws IOException {
+        final var tree = new BinaryTree<>(range(nodes));
+        final var serializer = new BinaryTreeSerializer<>(BinaryTreeSerializer.INTEGERS);
+        final var file = Files.createTempFile("BinaryTreeBenchmark", ".bin");
+        try {
+            final long write = best(() -> {
+                try {
+                    serializer.write(tree, file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            final long read = best(() -> {
+                try {
+                    serializer.read(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (!serializer.read(file).equals(tree)) throw new AssertionError("The tree read back differs.");
+            final long bytes = Files.size(file);
+            System.out.printf("serializer: %,d Integer nodes, %,.1f MB%n", nodes, bytes / 1e6);
+            System.out.printf("%-10s %10s %10s%n", "direction", "ms", "MB/s");
+            System.out.printf("%-10s %,10.0f %,10.0f%n", "write", write / 1e6, bytes / (write / 1e3));
+            System.out.printf("%-10s %,10.0f %,10.0f%n", "read",  read / 1e6,  bytes / (read / 1e3));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Writes {@code nodes} Integers as a {@link BinaryTreeSnapshot} and as a plain serializer file, then compares
+     * opening the snapshot for a first contains and get with building a {@link BinaryTree} from the same collection.
+     * Then it does the same for Strings of about 90 bytes each; at the default size that snapshot is past 1 GiB, so
+     * its reads cross mapped segment boundaries, and a full in-order pass checks every value read.
+     */
+    private static void snapshot(int nodes) throws IOException {
+        final var file = Files.createTempFile("BinaryTreeBenchmark", ".snapshot");
+        try {
+            System.out.printf("snapshot: %,d nodes%n", nodes);
+            System.out.printf("%-44s %12s%n", "operation", "ms");
+            snapshotIntegers(nodes, file);
+            snapshotStrings(nodes, file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void snapshotIntegers(int nodes, Path file) throws IOException {
+        final var values = range(nodes);
+        final var tree = new BinaryTree<>(values);
+        final var plain = Files.createTempFile("BinaryTreeBenchmark", ".bin");
+        try {
+            final var serializer = new BinaryTreeSerializer<>(BinaryTreeSerializer.INTEGERS);
+            System.out.printf("%-44s %,12.0f%n", "Integer serializer write", best(() -> {
+                try {
+                    serializer.write(tree, plain);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }) / 1e6);
+        } finally {
+            Files.delete(plain);
+        }
+        System.out.printf("%-44s %,12.0f%n", "Integer snapshot write", best(() -> {
+            try {
+                BinaryTreeSnapshot.write(tree, file, BinaryTreeSerializer.INTEGERS);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }) / 1e6);
+        final int probe = nodes / 3;
+        final Integer expected = tree.get(probe);
+        System.out.printf("%-44s %,12.2f%n", "Integer snapshot open, contains, get", best(() -> {
+            try (var snapshot = BinaryTreeSnapshot.open(file, BinaryTreeSerializer.INTEGERS)) {
+                if (!snapshot.contains(probe) || !snapshot.get(probe).equals(expected)) throw new AssertionError("Bad snapshot read.");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }) / 1e6);
+        System.out.printf("%-44s %,12.0f%n", "new BinaryTree(collection), contains", best(() -> {
+            if (!new BinaryTree<>(values).contains(probe)) throw new AssertionError("Bad tree.");
+        }) / 1e6);
+    }
+
+    private static void snapshotStrings(int nodes, Path file) throws IOException {
+        final var values = new ArrayList<String>(nodes);
+        for (int i = 0; i < nodes; i++) values.add(text(i));
+        final var tree = new BinaryTree<>(values);
+        final long start = System.nanoTime();
+        BinaryTreeSnapshot.write(tree, file, BinaryTreeSerializer.STRINGS);
+        System.out.printf("%-44s %,12.0f%n", "String snapshot write, " + (Files.size(file) >> 20) + " MiB",
+                (System.nanoTime() - start) / 1e6);
+        final int probe = nodes - 1;
+        final var expected = tree.get(probe);
+        System.out.printf("%-44s %,12.2f%n", "String snapshot open, contains, get", best(() -> {
+            try (var snapshot = BinaryTreeSnapshot.open(file, BinaryTreeSerializer.STRINGS)) {
+                if (!snapshot.contains(text(probe)) || !snapshot.get(probe).equals(expected)) {
+                    throw new AssertionError("Bad snapshot read.");
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }) / 1e6);
+        try (var snapshot = BinaryTreeSnapshot.open(file, BinaryTreeSerializer.STRINGS)) {
+            final long scan = System.nanoTime();
+            final var it = snapshot.inOrderIterator();
+            final var inOrder = tree.stream().iterator();
+            for (int i = 0; i < nodes; i++) {
+                if (!it.next().equals(inOrder.next())) throw new AssertionError("Bad value at in-order position " + i + ".");
+            }
+            System.out.printf("%-44s %,12.0f%n", "String snapshot in-order pass, all checked", (System.nanoTime() - scan) / 1e6);
+        }
+    }
+
+    /**
+     * @return a String data point of 67 to 106 bytes.
+     */
+    private static String text(int i) {
+        return "value-" + i + "-" + "x".repeat(60 + i % 40);
+    }
+
+    private static final class CountingWriter extends Writer {
+        private long count;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(String s, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * @return a tree of {@code 2 * half + 1} equal data points that is its own mirror image.
+     */
+    private static BinaryTree<Integer> symmetric(int half, boolean degenerate) {
+        final var builder = new BinaryTree.PreOrderBuilder<Integer>(false);
+        builder.add(1, half > 0, half > 0);
+        if (degenerate) {
+            for (int i = half - 1; i >= 0; i--) builder.add(1, i > 0, false);
+            for (int i = half - 1; i >= 0; i--) builder.add(1, false, i > 0);
+        } else {
+            balanced(builder, half, false);
+            balanced(builder, half, true);
+        }
+        final var tree = new BinaryTree<Integer>();
+        tree.replaceRoot(builder.root());
+        return tree;
+    }
+
+    /**
+     * Adds a size-balanced subtree of {@code count} nodes in pre-order, shaped as {@link BinaryTree#BinaryTree(Collection)}
+     * builds it, or its mirror image.
+     */
+    private static void balanced(BinaryTree.PreOrderBuilder<Integer> builder, int count, boolean mirrored) {
+        if (count == 0) return;
+        final int left  = mirrored ? (count - 1) >>> 1 : count >>> 1;
+        final int right = count - 1 - left;
+        builder.add(1, left > 0, right > 0);
+        balanced(builder, left,  mirrored);
+        balanced(builder, right, mirrored);
+    }
+
+    private static void check(boolean symmetric) {
+        if (!symmetric) throw new AssertionError("The benchmark tree is symmetric.");
+    }
+
+    private static void draw(BinaryTree<Integer> tree, Writer out) {
+        try {
+            tree.render(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The recursive versions below are the ones the explicit-stack engines replaced.
+
+    private static BinaryTree.BinaryTreeNode<Integer> mergeRecursive(BinaryTree.BinaryTreeNode<Integer> n0,
+                                                                     BinaryTree.BinaryTreeNode<Integer> n1) {
+        if (n0 == null && n1 == null) return null;
+        final var n2 = new BinaryTree.BinaryTreeNode<>((n0 == null ? 0 : n0.data) + (n1 == null ? 0 : n1.data));
+        n2.left  = mergeRecursive(n0 == null ? null : n0.left,  n1 == null ? null : n1.left);
+        n2.right = mergeRecursive(n0 == null ? null : n0.right, n1 == null ? null : n1.right);
+        return n2;
+    }
+
+    private static boolean isSymmetricRecursive(BinaryTree.BinaryTreeNode<?> n0, BinaryTree.BinaryTreeNode<?> n1) {
+        if (n0 == null && n1 == null) return true;
+        return (n0 != null && n1 != null)
+                && n0.equals(n1)
+                && isSymmetricRecursive(n0.left, n1.right)
+                && isSymmetricRecursive(n0.right, n1.left);
+    }
+
+    private static <T> BinaryTree.BinaryTreeNode<T> invertRecursive(BinaryTree.BinaryTreeNode<T> n) {
+        if (n == null) return null;
+        final var right = n.right;
+        n.right = invertRecursive(n.left);
+        n.left  = invertRecursive(right);
+        return n;
+    }
+
+    private static void drawRecursive(BinaryTree.BinaryTreeNode<?> root, Writer out) {
+        try {
+            drawRecursive(root, "", out, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void drawRecursive(BinaryTree.BinaryTreeNode<?> n, String pre, Writer out, boolean isLeft)
+            throws IOException {
+        if (n.right != null) drawRecursive(n.right, pre + (isLeft ? "│   " : "    "), out, false);
+        out.append(pre).append(isLeft ? "└── " : "┌── ").append(String.valueOf(n)).append("\n");
+        if (n.left  != null) drawRecursive(n.left,  pre + (isLeft ? "    " : "│   "), out, true);
+    }
+}
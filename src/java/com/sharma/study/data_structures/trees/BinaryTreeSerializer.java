@@ -0,0 +1,317 @@
+package com.sharma.study.data_structures.trees;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+/**
+ * Compact binary file format for a {@link BinaryTree}: a header, two shape bits per node in logical pre-order (has a
+ * left child, has a right child), then the data points in the same order through a pluggable {@link ValueCodec}.
+ * Fixed-width codecs such as {@link #INTEGERS} and {@link #LONGS} store bare values; other values carry a length prefix.
+ * All I/O goes through one large direct buffer per call, and both sides make a single pass over the nodes: writing
+ * fills the value section first and the header and shape bits last, by position, and reading rebuilds nodes, sizes,
+ * parent links and the in-order thread as the values stream in.
+ * The layout is little-endian:
+ * <pre>
+ *     int magic, byte version, byte codec id, int node count,
+ *     byte[(2 * count + 7) / 8] shape bits, node i at bit 2 * i,
+ *     values
+ * </pre>
+ * @param <T> type of data stored in {@link BinaryTree} nodes.
+ */
+public class BinaryTreeSerializer<T> {
+    private static final int MAGIC = 0x45525442;        // "BTRE" read as little-endian bytes.
+    private static final byte VERSION = 1;
+    private static final int HEADER = 10;
+    private static final int CHUNK = 1 << 22;
+
+    /**
+     * Encodes single data points. {@link ByteBuffer}s handed to a codec are little-endian and always hold enough room
+     * or bytes for the value at hand.
+     */
+    public interface ValueCodec<T> {
+        /**
+         * @return the length of every encoded value, or {@code -1} if it varies and must be stored with each value.
+         */
+        default int fixedSize() {
+            return -1;
+        }
+
+        /**
+         * @return the length of the encoded value; only asked of codecs without a fixed size.
+         */
+        int size(T value);
+
+        void write(T value, ByteBuffer out);
+
+        T read(ByteBuffer in, int size);
+
+        /**
+         * @return the identifier recorded in the header, so that a file is not read back with a different built-in
+         * codec; {@code 0} for user codecs.
+         */
+        default byte id() {
+            return 0;
+        }
+    }
+
+    /**
+     * Four bytes per data point, with no length prefix; {@code null} data points cannot be stored.
+     */
+    public static final ValueCodec<Integer> INTEGERS = new ValueCodec<>() {
+        @Override public int fixedSize()                          { return Integer.BYTES; }
+        @Override public int size(Integer value)                  { return Integer.BYTES; }
+        @Override public void write(Integer value, ByteBuffer out) { out.putInt(value); }
+        @Override public Integer read(ByteBuffer in, int size)     { return in.getInt(); }
+        @Override public byte id()                                { return 1; }
+    };
+
+    public static final ValueCodec<Long> LONGS = new ValueCodec<>() {
+        @Override public int fixedSize()                        { return Long.BYTES; }
+        @Override public int size(Long value)                   { return Long.BYTES; }
+        @Override public void write(Long value, ByteBuffer out) { out.putLong(value); }
+        @Override public Long read(ByteBuffer in, int size)     { return in.getLong(); }
+        @Override public byte id()                              { return 2; }
+    };
+
+    /**
+     * UTF-8 bytes of each data point; {@code null} data points cannot be stored. The length is counted from the chars,
+     * so each value is encoded only once, by {@link ValueCodec#write(Object, ByteBuffer)}.
+     */
+    public static final ValueCodec<String> STRINGS = new ValueCodec<>() {
+        /**
+         * Counts what {@link String#getBytes(java.nio.charset.Charset)} produces, including the one-byte {@code '?'}
+         * that replaces an unpaired surrogate.
+         */
+        @Override
+        public int size(String value) {
+            int size = 0;
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                final boolean pair = Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1));
+                if (pair)                          size += 4;
+                else if (c < 0x80)                 size += 1;
+                else if (c < 0x800)                size += 2;
+                else if (Character.isSurrogate(c)) size += 1;
+                else                               size += 3;
+                if (pair) i++;
+            }
+            return size;
+        }
+
+        @Override
+        public void write(String value, ByteBuffer out) {
+            out.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String read(ByteBuffer in, int size) {
+            final var bytes = new byte[size];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public byte id() {
+            return 3;
+        }
+    };
+
+    private final ValueCodec<T> codec;
+
+    public BinaryTreeSerializer(ValueCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    public void write(BinaryTree<T> tree, Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                  StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(tree, channel);
+        }
+    }
+
+    /**
+     * Writes the tree, in its logical orientation, from the current position of {@code channel} and leaves the
+     * position after it. The shape bits are collected in memory during the value pass, a quarter byte per node.
+     */
+    public void write(BinaryTree<T> tree, FileChannel channel) throws IOException {
+        final int count = tree.size();
+        final long start = channel.position();
+        final var shape = new byte[(int) ((2L * count + 7) >>> 3)];
+        final var out = new ChunkWriter(channel, start + HEADER + shape.length);
+        final int fixed = codec.fixedSize();
+        final var stack = new ArrayDeque<BinaryTree.BinaryTreeNode<T>>();
+        if (tree.root() != null) stack.push(tree.root());
+        for (int i = 0; !stack.isEmpty(); i++) {
+            final var n = stack.pop();
+            final var left  = tree.child(n, true);
+            final var right = tree.child(n, false);
+            shape[i >>> 2] |= ((left == null ? 0 : 1) | (right == null ? 0 : 2)) << ((i & 3) << 1);
+            if (fixed >= 0) {
+                codec.write(n.data, out.room(fixed));
+            } else {
+                final int size = codec.size(n.data);
+                codec.write(n.data, out.room(Integer.BYTES + size).putInt(size));
+            }
+            if (right != null) stack.push(right);
+            if (left  != null) stack.push(left);
+        }
+        final long end = out.flush();
+        final var head = ByteBuffer.allocate(HEADER + shape.length).order(ByteOrder.LITTLE_ENDIAN);
+        head.putInt(MAGIC).put(VERSION).put(codec.id()).putInt(count).put(shape).flip();
+        for (long position = start; head.hasRemaining(); ) position += channel.write(head, position);
+        channel.position(end);
+    }
+
+    public BinaryTree<T> read(Path path) throws IOException {
+        return read(path, false);
+    }
+
+    public BinaryTree<T> read(Path path, boolean indexed) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel, indexed);
+        }
+    }
+
+    /**
+     * Reads a tree from the current position of {@code channel} and leaves the position after it.
+     * @param indexed {@code true} to give the loaded tree a data-to-node hash index.
+     */
+    public BinaryTree<T> read(FileChannel channel, boolean indexed) throws IOException {
+        final var in = new ChunkReader(channel, channel.position());
+        final var head = in.bytes(HEADER);
+        if (head.getInt() != MAGIC)   throw new StreamCorruptedException("Not a binary tree file.");
+        if (head.get() != VERSION)    throw new StreamCorruptedException("Unsupported binary tree file version.");
+        final byte id = head.get();
+        if (id != codec.id())         throw new StreamCorruptedException("File was written with codec " + id + ", not " + codec.id() + ".");
+        final int count = head.getInt();
+        if (count < 0)                throw new StreamCorruptedException("Negative node count " + count + ".");
+        final int fixed = codec.fixedSize();
+        final long least = ((2L * count + 7) >>> 3) + (long) count * (fixed >= 0 ? fixed : Integer.BYTES);
+        if (least > in.remaining())   throw new StreamCorruptedException("Node count " + count + " does not fit in the file.");
+        final var shape = new byte[(int) ((2L * count + 7) >>> 3)];
+        for (int off = 0; off < shape.length; ) {
+            final int length = Math.min(shape.length - off, CHUNK);
+            in.bytes(length).get(shape, off, length);
+            off += length;
+        }
+        final var builder = new BinaryTree.PreOrderBuilder<T>(false);
+        try {
+            for (int i = 0; i < count; i++) {
+                final int bits = shape[i >>> 2] >>> ((i & 3) << 1);
+                final int size = fixed >= 0 ? fixed : in.bytes(Integer.BYTES).getInt();
+                if (size < 0 || size > in.remaining()) {
+                    throw new StreamCorruptedException("Value length " + size + " does not fit in the file.");
+                }
+                final var bytes = in.bytes(size);
+                final int start = bytes.position();
+                final T data = codec.read(bytes, size);
+                if (bytes.position() - start != size) {
+                    throw new StreamCorruptedException("Codec read " + (bytes.position() - start) + " bytes of a " + size + " byte value.");
+                }
+                builder.add(data, (bits & 1) != 0, (bits & 2) != 0);
+            }
+        } catch (IllegalStateException e) {
+            throw new StreamCorruptedException(e.getMessage());
+        }
+        if (count > 0 && !builder.isComplete()) throw new StreamCorruptedException("The shape bits end inside a subtree.");
+        final var tree = new BinaryTree<T>(indexed);
+        if (count > 0) tree.replaceRoot(builder.root());
+        channel.position(in.position());
+        return tree;
+    }
+
+    /**
+     * Collects values in a direct buffer and writes it out by position whenever the next value does not fit.
+     */
+    static final class ChunkWriter {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        ChunkWriter(FileChannel channel, long position) {
+            this.channel  = channel;
+            this.position = position;
+        }
+
+        /**
+         * @return the buffer, with room for at least {@code length} more bytes.
+         */
+        ByteBuffer room(int length) throws IOException {
+            if (buffer.remaining() >= length) return buffer;
+            drain();
+            if (buffer.capacity() < length) buffer = ByteBuffer.allocateDirect(length).order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) position += channel.write(buffer, position);
+            buffer.clear();
+        }
+
+        /**
+         * @return the position after the last value.
+         */
+        long flush() throws IOException {
+            drain();
+            return position;
+        }
+    }
+
+    /**
+     * Reads the file into a direct buffer chunk by chunk, compacting whatever the last value left unread.
+     */
+    private static final class ChunkReader {
+        private final FileChannel channel;
+        private final long end;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN).flip();
+        private long position;                  // file position of the end of the buffered bytes.
+
+        private ChunkReader(FileChannel channel, long position) throws IOException {
+            this.channel  = channel;
+            this.position = position;
+            this.end      = channel.size();
+        }
+
+        /**
+         * @return the buffer, holding at least {@code length} unread bytes.
+         */
+        private ByteBuffer bytes(int length) throws IOException {
+            if (buffer.remaining() >= length) return buffer;
+            if (buffer.capacity() < length) {
+                final var larger = ByteBuffer.allocateDirect(length).order(ByteOrder.LITTLE_ENDIAN);
+                buffer = larger.put(buffer).flip();
+            }
+            buffer.compact();
+            while (buffer.position() < length) {
+                final int read = channel.read(buffer, position);
+                if (read < 0) throw new EOFException("Binary tree file ends early.");
+                position += read;
+            }
+            return buffer.flip();
+        }
+
+        /**
+         * @return the file position of the first unread byte.
+         */
+        private long position() {
+            return position - buffer.remaining();
+        }
+
+        /**
+         * @return the number of unread bytes left in the file, buffered or not.
+         */
+        private long remaining() {
+            return end - position();
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.sharma.study.data_structures.trees;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read-only {@link BinaryTree} served straight from a memory-mapped file. Nodes are laid out in logical pre-order
+ * with their subtree sizes, so a node's left child is the next record and its right child follows the left subtree;
+ * positional queries descend by sizes, traversals walk record numbers, and {@link #contains(Object)} probes a hash
+ * table stored in the file. Nothing is read when the snapshot is opened beyond the header, data points are decoded
+ * only when asked for, and the operating system pages the file in and out. {@link #toBinaryTree(boolean)}
+ * materializes a mutable copy when one is needed.
+ * The layout is little-endian, each section starting on an eight byte boundary:
+ * <pre>
+ *     int magic, byte version, byte codec id, short 0, int node count, int hash slots,
+ *     long sizes, long shape, long values, long hash table    offsets of the sections below, header padded to 64 bytes
+ *     int[count] subtree sizes
+ *     byte[(2 * count + 7) / 8] shape bits, node i at bit 2 * i (has a left child, has a right child)
+ *     values: count fixed-width values, or long[count + 1] offsets into the value bytes that follow them
+ *     int[2 * slots] hash table: the hash of a data point and one more than its node, 0 for an empty slot
+ * </pre>
+ * Hashes come from {@link Object#hashCode()}, so data points must hash alike in the writing and the reading process,
+ * as {@link Integer}, {@link Long} and {@link String} do. A snapshot is safe to share between threads.
+ * @param <T> type of data stored in {@link BinaryTree} nodes.
+ */
+public class BinaryTreeSnapshot<T> implements Closeable {
+    private static final int MAGIC = 0x4E534254;        // "TBSN" read as little-endian bytes.
+    private static final byte VERSION = 1;
+    private static final int HEADER = 64;
+
+    private final FileChannel channel;
+    private final Mapping mapping;
+    private final BinaryTreeSerializer.ValueCodec<T> codec;
+    private final int count, slots, fixed;
+    private final long sizes, shape, values, table;
+
+    private BinaryTreeSnapshot(FileChannel channel, BinaryTreeSerializer.ValueCodec<T> codec) throws IOException {
+        this.channel = channel;
+        this.codec   = codec;
+        if (channel.size() < HEADER) throw new StreamCorruptedException("Not a binary tree snapshot.");
+        this.mapping = new Mapping(channel, channel.size());
+        if (mapping.getInt(0) != MAGIC)     throw new StreamCorruptedException("Not a binary tree snapshot.");
+        if (mapping.get(4) != VERSION)      throw new StreamCorruptedException("Unsupported binary tree snapshot version.");
+        final byte id = mapping.get(5);
+        if (id != codec.id())               throw new StreamCorruptedException("Snapshot was written with codec " + id + ", not " + codec.id() + ".");
+        this.count  = mapping.getInt(8);
+        this.slots  = mapping.getInt(12);
+        this.sizes  = mapping.getLong(16);
+        this.shape  = mapping.getLong(24);
+        this.values = mapping.getLong(32);
+        this.table  = mapping.getLong(40);
+        this.fixed  = codec.fixedSize();
+        if (!fits(channel.size())) {
+            throw new StreamCorruptedException("Binary tree snapshot header is inconsistent with the file.");
+        }
+    }
+
+    /**
+     * Checks that the sections follow each other in order, each large enough for {@code count} nodes, and that the
+     * hash table has a free slot and ends within the file, so no later read can leave the mapping or probe forever.
+     */
+    private boolean fits(long fileSize) {
+        if (count < 0 || count >= slots || Integer.bitCount(slots) != 1) return false;
+        if (sizes < HEADER || shape < sizes || values < shape || table < values) return false;
+        if (sizes + 4L * count > shape || shape + (2L * count + 7) / 8 > values) return false;
+        if (table > fileSize - 8L * slots) return false;
+        if (fixed >= 0) return values + (long) fixed * count <= table;
+        final long bytes = values + 8L * (count + 1);                  // the value bytes follow their offsets.
+        return bytes <= table && mapping.getLong(values) == 0 && mapping.getLong(values + 8L * count) <= table - bytes;
+    }
+
+    /**
+     * Maps the snapshot at {@code path}; the cost does not depend on its size.
+     */
+    public static <T> BinaryTreeSnapshot<T> open(Path path, BinaryTreeSerializer.ValueCodec<T> codec) throws IOException {
+        final var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new BinaryTreeSnapshot<>(channel, codec);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes {@code tree}, in its logical orientation, as a snapshot at {@code path}. Sizes and values are written in
+     * one pre-order pass, which also fills the hash table in memory, at eight bytes a slot, to be written last.
+     */
+    public static <T> void write(BinaryTree<T> tree, Path path, BinaryTreeSerializer.ValueCodec<T> codec) throws IOException {
+        final int count = tree.size();
+        if (count > (1 << 30) / 3 * 2) throw new IllegalArgumentException("Too many nodes for a snapshot: " + count);
+        int slots = 2;
+        while (slots < count + (count >>> 1)) slots <<= 1;         // at most two thirds full.
+        final int fixed = codec.fixedSize();
+        final var shapeBits = new byte[(int) ((2L * count + 7) >>> 3)];
+        final long sizes  = HEADER;
+        final long shape  = sizes + 4L * count;
+        final long values = align(shape + shapeBits.length);
+        final long bytes  = fixed >= 0 ? values : values + 8L * (count + 1);
+        final var hashes = new int[slots];
+        final var nodes  = new int[slots];
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                  StandardOpenOption.TRUNCATE_EXISTING)) {
+            final var sizeOut   = new BinaryTreeSerializer.ChunkWriter(channel, sizes);
+            final var valueOut  = new BinaryTreeSerializer.ChunkWriter(channel, bytes);
+            final var offsetOut = fixed >= 0 ? null : new BinaryTreeSerializer.ChunkWriter(channel, values);
+            long offset = 0;
+            final var stack = new ArrayDeque<BinaryTree.BinaryTreeNode<T>>();
+            if (tree.root() != null) stack.push(tree.root());
+            for (int i = 0; !stack.isEmpty(); i++) {
+                final var n = stack.pop();
+                final var left  = tree.child(n, true);
+                final var right = tree.child(n, false);
+                shapeBits[i >>> 2] |= ((left == null ? 0 : 1) | (right == null ? 0 : 2)) << ((i & 3) << 1);
+                sizeOut.room(Integer.BYTES).putInt(n.size);
+                final int size = fixed >= 0 ? fixed : codec.size(n.data);
+                if (offsetOut != null) {
+                    offsetOut.room(Long.BYTES).putLong(offset);
+                    offset += size;
+                }
+                codec.write(n.data, valueOut.room(size));
+                final int h = hash(n.data);
+                int slot = h & (slots - 1);
+                while (nodes[slot] != 0) slot = (slot + 1) & (slots - 1);
+                hashes[slot] = h;
+                nodes[slot]  = i + 1;
+                if (right != null) stack.push(right);
+                if (left  != null) stack.push(left);
+            }
+            if (offsetOut != null) {
+                offsetOut.room(Long.BYTES).putLong(offset);
+                offsetOut.flush();
+            }
+            sizeOut.flush();
+            final long table = align(valueOut.flush());
+            final var head = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            head.putInt(MAGIC).put(VERSION).put(codec.id()).putShort((short) 0).putInt(count).putInt(slots)
+                .putLong(sizes).putLong(shape).putLong(values).putLong(table).clear();
+            for (long position = 0; head.hasRemaining(); ) position += channel.write(head, position);
+            final var shapeBuffer = ByteBuffer.wrap(shapeBits);
+            for (long position = shape; shapeBuffer.hasRemaining(); ) position += channel.write(shapeBuffer, position);
+            final var tableOut = new BinaryTreeSerializer.ChunkWriter(channel, table);
+            for (int slot = 0; slot < slots; slot++) tableOut.room(2 * Integer.BYTES).putInt(hashes[slot]).putInt(nodes[slot]);
+            tableOut.flush();
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static int hash(Object data) {
+        final int h = Objects.hashCode(data) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public boolean contains(T data) {
+        return find(data) >= 0;
+    }
+
+    /**
+     * @return the data point at in-order position {@code index}, found by descending on subtree sizes.
+     */
+    public T get(int index) {
+        Objects.checkIndex(index, count);
+        int node = 0;
+        while (true) {
+            final int leftSize = leftSize(node);
+            if (index == leftSize) return value(node);
+            if (index < leftSize) {
+                node++;
+            } else {
+                index -= leftSize + 1;
+                node  += leftSize + 1;
+            }
+        }
+    }
+
+    /**
+     * @return the in-order position of a node holding {@code data}, or {@code -1}; with duplicates, not necessarily
+     * the first.
+     */
+    public int indexOf(T data) {
+        final int target = find(data);
+        if (target < 0) return -1;
+        int node = 0, index = 0;
+        while (node != target) {
+            final int leftSize = leftSize(node);
+            if (target <= node + leftSize) {
+                node++;
+            } else {
+                index += leftSize + 1;
+                node  += leftSize + 1;
+            }
+        }
+        return index + leftSize(target);
+    }
+
+    public Iterator<T> preOrderIterator() {
+        return new Iterator<>() {
+            private int node;
+
+            @Override
+            public boolean hasNext() {
+                return node < count;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return value(node++);
+            }
+        };
+    }
+
+    public Iterator<T> inOrderIterator() {
+        return new NodeIterator() {
+            {
+                pushLeftPath(count == 0 ? -1 : 0);
+            }
+
+            @Override
+            int advance() {
+                final int node = pop();
+                pushLeftPath(right(node));
+                return node;
+            }
+        };
+    }
+
+    public Iterator<T> postOrderIterator() {
+        return new NodeIterator() {
+            {
+                pushFirstLeaf(count == 0 ? -1 : 0);
+            }
+
+            @Override
+            int advance() {
+                final int node = pop();
+                if (top > 0 && left(stack[top - 1]) == node) pushFirstLeaf(right(stack[top - 1]));
+                return node;
+            }
+
+            private void pushFirstLeaf(int node) {
+                while (node >= 0) {
+                    push(node);
+                    node = left(node) >= 0 ? left(node) : right(node);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the data points in in-order.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(inOrderIterator(), count,
+                                                             Spliterator.ORDERED | Spliterator.IMMUTABLE), false);
+    }
+
+    /**
+     * Builds a mutable {@link BinaryTree} from the snapshot in one pre-order pass over the mapping.
+     * @param indexed {@code true} to give the tree a data-to-node hash index.
+     */
+    public BinaryTree<T> toBinaryTree(boolean indexed) {
+        final var builder = new BinaryTree.PreOrderBuilder<T>(false);
+        for (int i = 0; i < count; i++) {
+            final int bits = shapeBits(i);
+            builder.add(value(i), (bits & 1) != 0, (bits & 2) != 0);
+        }
+        final var tree = new BinaryTree<T>(indexed);
+        if (count > 0) tree.replaceRoot(builder.root());
+        return tree;
+    }
+
+    /**
+     * Closes the file. The mapping itself is released once it is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Probes at most every slot once and stops at an entry naming no node, so a damaged table cannot make it loop
+     * forever or read a record that does not exist.
+     */
+    private int find(T data) {
+        final int h = hash(data), mask = slots - 1;
+        for (int probe = 0, slot = h & mask; probe < slots; probe++, slot = (slot + 1) & mask) {
+            final int node = mapping.getInt(table + 8L * slot + 4) - 1;
+            if (node < 0 || node >= count) return -1;
+            if (mapping.getInt(table + 8L * slot) == h && Objects.equals(value(node), data)) return node;
+        }
+        return -1;
+    }
+
+    private int shapeBits(int node) {
+        return mapping.get(shape + (node >>> 2)) >>> ((node & 3) << 1) & 3;
+    }
+
+    private int leftSize(int node) {
+        return (shapeBits(node) & 1) != 0 ? mapping.getInt(sizes + 4L * (node + 1)) : 0;
+    }
+
+    private int left(int node) {
+        return (shapeBits(node) & 1) != 0 ? node + 1 : -1;
+    }
+
+    private int right(int node) {
+        return (shapeBits(node) & 2) != 0 ? node + 1 + leftSize(node) : -1;
+    }
+
+    private T value(int node) {
+        if (fixed >= 0) return codec.read(mapping.slice(values + (long) fixed * node, fixed), fixed);
+        final long start = mapping.getLong(values + 8L * node);
+        final int size = (int) (mapping.getLong(values + 8L * (node + 1)) - start);
+        return codec.read(mapping.slice(values + 8L * (count + 1) + start, size), size);
+    }
+
+    /**
+     * Iterates record numbers off an explicit stack, so it uses memory in the height, never the size.
+     */
+    private abstract class NodeIterator implements Iterator<T> {
+        int[] stack = new int[32];
+        int top;
+
+        abstract int advance();
+
+        void push(int node) {
+            if (top == stack.length) stack = Arrays.copyOf(stack, top << 1);
+            stack[top++] = node;
+        }
+
+        int pop() {
+            return stack[--top];
+        }
+
+        void pushLeftPath(int node) {
+            for (; node >= 0; node = left(node)) push(node);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return top > 0;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return value(advance());
+        }
+    }
+
+    /**
+     * A file region mapped as consecutive buffers of at most {@code SEGMENT} bytes, since one buffer cannot exceed
+     * 2 GiB. Each buffer also maps the first {@code OVERLAP} bytes of the next, so reads that start in a segment
+     * rarely have to be stitched together. All reads are absolute and leave the buffers untouched.
+     */
+    private static final class Mapping {
+        private static final int SHIFT = 30, SEGMENT = 1 << SHIFT, OVERLAP = 1 << 16;
+        private final MappedByteBuffer[] segments;
+
+        private Mapping(FileChannel channel, long length) throws IOException {
+            segments = new MappedByteBuffer[(int) Math.max(1, (length + SEGMENT - 1) >>> SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                final long start = (long) i << SHIFT;
+                final long size  = Math.min(length - start, SEGMENT + OVERLAP);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        private byte get(long offset) {
+            return segments[(int) (offset >>> SHIFT)].get((int) (offset & (SEGMENT - 1)));
+        }
+
+        private int getInt(long offset) {
+            return segments[(int) (offset >>> SHIFT)].getInt((int) (offset & (SEGMENT - 1)));
+        }
+
+        private long getLong(long offset) {
+            return segments[(int) (offset >>> SHIFT)].getLong((int) (offset & (SEGMENT - 1)));
+        }
+
+        /**
+         * @return a little-endian buffer holding the {@code length} bytes at {@code offset}, a view of the mapping
+         * unless they cross the overlap into a later segment.
+         */
+        private ByteBuffer slice(long offset, int length) {
+            final var segment = segments[(int) (offset >>> SHIFT)];
+            final int start = (int) (offset & (SEGMENT - 1));
+            if (start + length <= segment.limit()) {
+                return segment.duplicate().position(start).limit(start + length).slice().order(ByteOrder.LITTLE_ENDIAN);
+            }
+            final var copy = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < length; i++) copy.put(get(offset + i));
+            return copy.flip();
+        }
+    }
+}
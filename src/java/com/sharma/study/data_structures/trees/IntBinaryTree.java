@@ -0,0 +1,334 @@
+package com.sharma.study.data_structures.trees;
+
+import java.util.Arrays;
+import java.util.OptionalInt;
+
+/**
+ * Size-balanced binary tree of {@code int} data points with the same shape rules as {@link BinaryTree}.
+ * Nodes are dense ids into parallel primitive arrays, so neither the data points nor the nodes are boxed
+ * or allocated individually, and traversals return {@code int[]}.
+ */
+public class IntBinaryTree {
+    private static final int NIL = -1;
+    private static final int INITIAL_CAPACITY = 16;
+    private int[] data, left, right, parent, size;
+    private int root = NIL;
+    private int count;
+
+    public IntBinaryTree() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public IntBinaryTree(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    public static IntBinaryTree of(int... values) {
+        final var tree = new IntBinaryTree(values.length);
+        for (final int value : values) tree.add(value);
+        return tree;
+    }
+
+    private void allocate(int capacity) {
+        data   = new int[capacity];
+        left   = new int[capacity];
+        right  = new int[capacity];
+        parent = new int[capacity];
+        size   = new int[capacity];
+    }
+
+    private void grow() {
+        final int capacity = data.length + (data.length >> 1) + 1;
+        data   = Arrays.copyOf(data,   capacity);
+        left   = Arrays.copyOf(left,   capacity);
+        right  = Arrays.copyOf(right,  capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        size   = Arrays.copyOf(size,   capacity);
+    }
+
+    private int newNode(int value, int p) {
+        if (count == data.length) grow();
+        final int n = count++;
+        data[n]   = value;
+        left[n]   = NIL;
+        right[n]  = NIL;
+        parent[n] = p;
+        size[n]   = 1;
+        return n;
+    }
+
+    private int size(int n) {
+        return n == NIL ? 0 : size[n];
+    }
+
+    /**
+     * @return the number of nodes in this tree.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return {@code true} if this tree contains no nodes, {@code false} otherwise.
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Node is inserted while preserving balanced invariant.
+     * @param value inserts a new node with the specified data point into this tree.
+     */
+    public void add(int value) {
+        if (root == NIL) {
+            root = newNode(value, NIL);
+            return;
+        }
+        var n = root;
+        while (true) {
+            size[n]++;
+            final int l = left[n], r = right[n];
+            if (l == NIL || (r != NIL && size[l] <= size[r])) {
+                if (l == NIL) break;
+                n = l;
+            } else {
+                if (r == NIL) break;
+                n = r;
+            }
+        }
+        final int leaf = newNode(value, n);     // may grow the arrays, so link only afterwards.
+        if (left[n] == NIL) left[n]  = leaf;
+        else                right[n] = leaf;
+    }
+
+    /**
+     * Removes node with specified data point (if it exists) while maintaining balanced invariant.
+     * @param value data point associated with node to remove.
+     */
+    public void remove(int value) {
+        final int n = indexOf(value);
+        if (n == NIL) return;
+        var leaf = n;
+        while (left[leaf] != NIL || right[leaf] != NIL) {
+            final int l = left[leaf], r = right[leaf];
+            leaf = (r == NIL || (l != NIL && size[l] >= size[r])) ? l : r;
+        }
+        data[n] = data[leaf];
+        final int p = parent[leaf];
+        if (p == NIL)               root = NIL;
+        else if (left[p] == leaf)   left[p]  = NIL;
+        else                        right[p] = NIL;
+        for (int a = p; a != NIL; a = parent[a]) size[a]--;
+        relocate(--count, leaf);
+    }
+
+    /**
+     * Moves node {@code from} into the freed id {@code to} so that ids stay dense.
+     */
+    private void relocate(int from, int to) {
+        if (from == to) return;
+        data[to]   = data[from];
+        left[to]   = left[from];
+        right[to]  = right[from];
+        parent[to] = parent[from];
+        size[to]   = size[from];
+        final int p = parent[to];
+        if (p == NIL)               root = to;
+        else if (left[p] == from)   left[p]  = to;
+        else                        right[p] = to;
+        if (left[to]  != NIL) parent[left[to]]  = to;
+        if (right[to] != NIL) parent[right[to]] = to;
+    }
+
+    /**
+     * @param value data point associated with node to check for existence.
+     * @return {@code true} if node associated with the specified data point exists, {@code false} otherwise.
+     */
+    public boolean contains(int value) {
+        return indexOf(value) != NIL;
+    }
+
+    private int indexOf(int value) {
+        for (int n = 0; n < count; n++) {
+            if (data[n] == value) return n;
+        }
+        return NIL;
+    }
+
+    /**
+     * Traversals below follow parent links instead of keeping a stack.
+     * @return data points in in-order.
+     */
+    public int[] inOrder() {
+        final var path = new int[count];
+        int i = 0;
+        for (int n = root == NIL ? NIL : leftmost(root); n != NIL; ) {
+            path[i++] = data[n];
+            if (right[n] != NIL) n = leftmost(right[n]);   // go right, then all the way left.
+            else {
+                int child = n;
+                n = parent[n];
+                while (n != NIL && right[n] == child) {      // go up past finished right subtrees.
+                    child = n;
+                    n = parent[n];
+                }
+            }
+        }
+        return path;
+    }
+
+    /**
+     * @return data points in pre-order.
+     */
+    public int[] preOrder() {
+        final var path = new int[count];
+        int i = 0;
+        for (int n = root; n != NIL; n = next(n, left, right)) path[i++] = data[n];
+        return path;
+    }
+
+    /**
+     * @return data points in post-order.
+     */
+    public int[] postOrder() {
+        final var path = new int[count];
+        int i = 0;
+        for (int n = root == NIL ? NIL : firstLeaf(root); n != NIL; ) {
+            path[i++] = data[n];
+            final int p = parent[n];
+            if (p != NIL && left[p] == n && right[p] != NIL) n = firstLeaf(right[p]);   // go to the right sibling.
+            else n = p;                                                                 // go up.
+        }
+        return path;
+    }
+
+    private int leftmost(int n) {
+        while (left[n] != NIL) n = left[n];
+        return n;
+    }
+
+    private int firstLeaf(int n) {
+        while (true) {
+            if (left[n] != NIL)       n = left[n];
+            else if (right[n] != NIL) n = right[n];
+            else return n;
+        }
+    }
+
+    /**
+     * Climbs parent links from the deeper node until both meet, in O(height) once the nodes are found.
+     * @return the data point of the lowest common ancestor of the nodes holding {@code c0} and {@code c1}, or an
+     * empty result if either does not exist.
+     */
+    public OptionalInt findLCA(int c0, int c1) {
+        int n0 = indexOf(c0), n1 = indexOf(c1);
+        if (n0 == NIL || n1 == NIL) return OptionalInt.empty();
+        int d0 = depth(n0), d1 = depth(n1);
+        for (; d0 > d1; d0--) n0 = parent[n0];
+        for (; d1 > d0; d1--) n1 = parent[n1];
+        while (n0 != n1) {
+            n0 = parent[n0];
+            n1 = parent[n1];
+        }
+        return OptionalInt.of(data[n0]);
+    }
+
+    private int depth(int n) {
+        int depth = 0;
+        for (int p = parent[n]; p != NIL; p = parent[p]) depth++;
+        return depth;
+    }
+
+    /**
+     * Computes every height in one post-order walk into a scratch array indexed by node id.
+     * @return {@code true} if the heights of the two subtrees of every node differ by at most one.
+     */
+    public boolean isBalanced() {
+        final var height = new int[count];
+        for (int n = root == NIL ? NIL : firstLeaf(root); n != NIL; ) {
+            final int l = left[n]  == NIL ? -1 : height[left[n]];
+            final int r = right[n] == NIL ? -1 : height[right[n]];
+            if (Math.abs(l - r) > 1) return false;
+            height[n] = 1 + Math.max(l, r);
+            final int p = parent[n];
+            if (p != NIL && left[p] == n && right[p] != NIL) n = firstLeaf(right[p]);
+            else n = p;
+        }
+        return true;
+    }
+
+    /**
+     * Walks the tree in pre-order and in mirrored pre-order (right before left) in lockstep, so no stack is needed:
+     * the tree is symmetric exactly when both walks meet the same data points with mirrored children.
+     */
+    public boolean isSymmetric() {
+        for (int a = root, b = root; a != NIL; a = next(a, left, right), b = next(b, right, left)) {
+            if (data[a] != data[b] || (left[a] == NIL) != (right[b] == NIL) || (right[a] == NIL) != (left[b] == NIL)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the node after {@code n} in a pre-order that visits the {@code first} child before the {@code second}.
+     */
+    private int next(int n, int[] first, int[] second) {
+        if (first[n]  != NIL) return first[n];                // go to the first child.
+        if (second[n] != NIL) return second[n];               // go to the second child.
+        int child = n;
+        n = parent[n];
+        while (n != NIL && (second[n] == child || second[n] == NIL)) {
+            child = n;
+            n = parent[n];
+        }
+        return n == NIL ? NIL : second[n];                    // go to the first unvisited second subtree.
+    }
+
+    /**
+     * Swaps the children of every node at once by exchanging the left and right id arrays.
+     */
+    public void invert() {
+        final var l = left;
+        left  = right;
+        right = l;
+    }
+
+    /**
+     * Sums the data points of nodes at the same position; a node missing from one tree counts as {@code 0}.
+     * Only the primitive arrays of the result are allocated.
+     * @return a new tree shaped as the union of both trees.
+     */
+    public static IntBinaryTree merge(IntBinaryTree first, IntBinaryTree second) {
+        final var merged = new IntBinaryTree(first.count + second.count);
+        merged.root = merged.merge(first, first.root, second, second.root, NIL);
+        return merged;
+    }
+
+    private int merge(IntBinaryTree t0, int n0, IntBinaryTree t1, int n1, int p) {
+        if (n0 == NIL && n1 == NIL) return NIL;
+        final int n2 = newNode((n0 == NIL ? 0 : t0.data[n0]) + (n1 == NIL ? 0 : t1.data[n1]), p);
+        final int l  = merge(t0, n0 == NIL ? NIL : t0.left[n0],  t1, n1 == NIL ? NIL : t1.left[n1],  n2);
+        final int r  = merge(t0, n0 == NIL ? NIL : t0.right[n0], t1, n1 == NIL ? NIL : t1.right[n1], n2);
+        left[n2]  = l;
+        right[n2] = r;
+        size[n2]  = 1 + size(l) + size(r);
+        return n2;
+    }
+
+    @Override
+    public String toString() {
+        final var sb = new StringBuilder();
+        toString(root, "", sb, true);
+        return sb.toString();
+    }
+
+    private void toString(int n, String pre, StringBuilder sb, boolean isLeft) {
+        if (n == NIL) sb.append("Empty Tree.");
+        else {
+            if (right[n] != NIL) toString(right[n], pre + (isLeft ? "│   " : "    "), sb, false);
+            sb.append(pre).append(isLeft ? "└── " : "┌── ").append(data[n]).append("\n");
+            if (left[n]  != NIL) toString(left[n],  pre + (isLeft ? "    " : "│   "), sb, true);
+        }
+    }
+}
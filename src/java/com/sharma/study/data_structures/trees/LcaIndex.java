@@ -0,0 +1,145 @@
+package com.sharma.study.data_structures.trees;
+
+import java.util.*;
+
+/**
+ * Constant-time lowest common ancestor queries over a snapshot of a {@link BinaryTree}.
+ * Preprocessing records an Euler tour of the tree and builds a sparse table of range-minimum depths over it, in
+ * O(n log n) time and space; the LCA of two nodes is then the shallowest node the tour passes between their first
+ * occurrences. The index does not follow later changes to the tree.
+ * @param <T> type of data stored in {@link BinaryTree} nodes.
+ */
+public class LcaIndex<T> {
+    private final Object[] values;          // node id -> data point, ids in pre-order.
+    private final Map<T, Integer> ids;      // data point -> id of its first node in pre-order.
+    private final int[] first;              // node id -> first position in the tour.
+    private final int[] euler, depth;       // tour position -> node id and its depth.
+    private final int[][] sparse;           // sparse[k][i] -> shallowest tour position in [i, i + 2^k).
+
+    public LcaIndex(BinaryTree<T> tree) {
+        final int n = tree.size();
+        values = new Object[n];
+        ids    = new HashMap<>(Math.max(16, (int) (n / 0.75f) + 1));
+        first  = new int[n];
+        euler  = new int[Math.max(0, 2 * n - 1)];
+        depth  = new int[euler.length];
+        tour(tree.root());
+        sparse = sparseTable();
+    }
+
+    /**
+     * Walks the tree along its parent links without a stack; a node enters the tour when it is first reached and
+     * again after each of its children is finished.
+     */
+    private void tour(BinaryTree.BinaryTreeNode<T> root) {
+        var path = new int[32];                 // depth -> id of the node on the current path.
+        int nextId = 0, pos = 0, d = 0;
+        BinaryTree.BinaryTreeNode<T> prev = null;
+        for (var n = root; n != null; ) {
+            final BinaryTree.BinaryTreeNode<T> next;
+            if (prev == n.parent) {             // first arrival.
+                if (d == path.length) path = Arrays.copyOf(path, d << 1);
+                final int id = nextId++;
+                path[d]    = id;
+                values[id] = n.data;
+                first[id]  = pos;
+                ids.putIfAbsent(n.data, id);
+                next = n.left != null ? n.left : n.right != null ? n.right : n.parent;
+            } else {
+                next = prev == n.left && n.right != null ? n.right : n.parent;
+            }
+            euler[pos]   = path[d];
+            depth[pos++] = d;
+            prev = n;
+            if (next == n.parent) d--;
+            else d++;
+            n = next;
+        }
+    }
+
+    private int[][] sparseTable() {
+        final int m = euler.length;
+        final int levels = m == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(m);
+        final var table = new int[levels][];
+        table[0] = new int[m];
+        for (int i = 0; i < m; i++) table[0][i] = i;
+        for (int k = 1; k < levels; k++) {
+            final int half = 1 << (k - 1);
+            final var prev = table[k - 1];
+            final var row  = table[k] = new int[m - (1 << k) + 1];
+            for (int i = 0; i < row.length; i++) row[i] = shallower(prev[i], prev[i + half]);
+        }
+        return table;
+    }
+
+    private int shallower(int p0, int p1) {
+        return depth[p0] <= depth[p1] ? p0 : p1;
+    }
+
+    /**
+     * @return the number of nodes in the indexed tree.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @return the id of the first node in pre-order holding {@code data}, or {@code -1} if there is none.
+     */
+    public int id(T data) {
+        final var id = ids.get(data);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the data point of the node with the specified id.
+     */
+    @SuppressWarnings("unchecked")
+    public T value(int id) {
+        return (T) values[id];
+    }
+
+    /**
+     * @return the id of the lowest common ancestor of the nodes with ids {@code u} and {@code v}, in O(1).
+     */
+    public int lca(int u, int v) {
+        int l = first[u], r = first[v];
+        if (l > r) {
+            final int t = l;
+            l = r;
+            r = t;
+        }
+        final int k = 31 - Integer.numberOfLeadingZeros(r - l + 1);
+        return euler[shallower(sparse[k][l], sparse[k][r - (1 << k) + 1])];
+    }
+
+    /**
+     * @param c0 first data point.
+     * @param c1 second data point.
+     * @return the data point associated with the lowest common ancestor, or {@code null} if either does not exist.
+     */
+    public T findLCA(T c0, T c1) {
+        final int u = id(c0), v = id(c1);
+        return u < 0 || v < 0 ? null : value(lca(u, v));
+    }
+
+    /**
+     * Answers a batch of queries offline, spreading them over the common fork-join pool.
+     * @param us  first node id of every query.
+     * @param vs  second node id of every query.
+     * @param out receives the id of the lowest common ancestor of every query; as long as {@code us} and {@code vs}.
+     */
+    public void lca(int[] us, int[] vs, int[] out) {
+        if (us.length != vs.length || out.length != us.length) throw new IllegalArgumentException("Query and result arrays differ in length.");
+        Arrays.parallelSetAll(out, i -> lca(us[i], vs[i]));
+    }
+
+    /**
+     * Answers a batch of queries offline by data point; a query naming a missing data point yields {@code null}. All
+     * three arrays must have the same length.
+     */
+    public void findLCA(T[] c0, T[] c1, T[] out) {
+        if (c0.length != c1.length || out.length != c0.length) throw new IllegalArgumentException("Query and result arrays differ in length.");
+        Arrays.parallelSetAll(out, i -> findLCA(c0[i], c1[i]));
+    }
+}
@@ -0,0 +1,420 @@
+package com.sharma.study.data_structures.trees;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Anti-entropy reconciliation between replicas of a {@link BinaryTree} through their cached Merkle hashes.
+ * {@link #pull(Transport)} compares root hashes, then walks down one level per round trip, asking the source only for
+ * the positions whose subtree hashes differ and shipping whole subtrees only where this replica has none. Traffic and
+ * work therefore grow with the number of differing positions times the height, not with the size of the tree.
+ * Positions are strings of logical {@code 'L'}/{@code 'R'} steps from the root, as in
+ * {@link BinaryTree.Difference#path()}. Neither replica may be modified by anyone else while a pull runs.
+ * Subtree hashes come from {@link Object#hashCode()}, so replicas in different processes must hold data points that
+ * hash by value, as {@link Integer}, {@link Long} and {@link String} do; with enums or identity hash codes the root
+ * hashes never match and every pull expands the whole tree.
+ * Over a socket, requests and replies use a fixed binary format whose data points are encoded by a
+ * {@link BinaryTreeSerializer.ValueCodec}; nothing is deserialized as objects, and counts and lengths are checked
+ * before anything is allocated for them.
+ * @param <T> type of data stored in {@link BinaryTree} nodes.
+ */
+public class MerkleSync<T> {
+    private static final byte ROOT_HASH = 0, EXPAND = 1, FETCH = 2;
+    private static final byte LEFT = 1, RIGHT = 2;
+    private static final int MAX_BATCH = 1 << 16;       // positions per request.
+    private final BinaryTree<T> tree;
+
+    public MerkleSync(BinaryTree<T> tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * The replica being pulled from, one batched request at a time.
+     */
+    public interface Transport<T> {
+        long rootHash() throws IOException;
+
+        /**
+         * @param paths positions at which the source has a node.
+         * @return the data point and child hashes of the source node at each position.
+         */
+        List<Digest<T>> expand(List<String> paths) throws IOException;
+
+        /**
+         * @param paths positions at which the source has a node.
+         * @return the whole source subtree at each position.
+         */
+        List<Subtree<T>> fetch(List<String> paths) throws IOException;
+    }
+
+    public static final class Digest<T> {
+        private final T data;
+        private final long leftHash, rightHash;
+
+        private Digest(T data, long leftHash, long rightHash) {
+            this.data      = data;
+            this.leftHash  = leftHash;
+            this.rightHash = rightHash;
+        }
+    }
+
+    /**
+     * A subtree as its data points in logical pre-order, each with a flag byte telling which children follow.
+     */
+    public static final class Subtree<T> {
+        private final Object[] data;
+        private final byte[] shape;
+
+        private Subtree(Object[] data, byte[] shape) {
+            this.data  = data;
+            this.shape = shape;
+        }
+    }
+
+    /**
+     * What a pull cost: requests sent, node digests received and nodes shipped in subtrees.
+     */
+    public static final class Report {
+        private final int roundTrips, expanded, shipped;
+
+        private Report(int roundTrips, int expanded, int shipped) {
+            this.roundTrips = roundTrips;
+            this.expanded   = expanded;
+            this.shipped    = shipped;
+        }
+
+        public int roundTrips() {
+            return roundTrips;
+        }
+
+        public int nodesExpanded() {
+            return expanded;
+        }
+
+        public int nodesShipped() {
+            return shipped;
+        }
+
+        @Override
+        public String toString() {
+            return roundTrips + " round trips, " + expanded + " nodes expanded, " + shipped + " nodes shipped";
+        }
+    }
+
+    /**
+     * @return a transport answering directly from this replica, for pulls within the same process.
+     */
+    public Transport<T> transport() {
+        return new Transport<>() {
+            @Override
+            public long rootHash() {
+                return tree.hashOf(tree.root());
+            }
+
+            @Override
+            public List<Digest<T>> expand(List<String> paths) {
+                return MerkleSync.this.expand(paths);
+            }
+
+            @Override
+            public List<Subtree<T>> fetch(List<String> paths) {
+                return MerkleSync.this.fetch(paths);
+            }
+        };
+    }
+
+    private List<Digest<T>> expand(List<String> paths) {
+        final var digests = new ArrayList<Digest<T>>(paths.size());
+        for (final var path : paths) {
+            final var n = tree.nodeAt(path);
+            digests.add(new Digest<>(n.data, tree.hashOf(tree.child(n, true)), tree.hashOf(tree.child(n, false))));
+        }
+        return digests;
+    }
+
+    private List<Subtree<T>> fetch(List<String> paths) {
+        final var subtrees = new ArrayList<Subtree<T>>(paths.size());
+        for (final var path : paths) {
+            final var root = tree.nodeAt(path);
+            final var data  = new Object[root.size];
+            final var shape = new byte[root.size];
+            final var stack = new ArrayDeque<BinaryTree.BinaryTreeNode<T>>();
+            stack.push(root);
+            for (int i = 0; !stack.isEmpty(); i++) {
+                final var n = stack.pop();
+                final var left  = tree.child(n, true);
+                final var right = tree.child(n, false);
+                data[i]  = n.data;
+                shape[i] = (byte) ((left == null ? 0 : LEFT) | (right == null ? 0 : RIGHT));
+                if (right != null) stack.push(right);
+                if (left  != null) stack.push(left);
+            }
+            subtrees.add(new Subtree<>(data, shape));
+        }
+        return subtrees;
+    }
+
+    /**
+     * Makes this replica equal to the one behind {@code source}. Each round expands the positions whose hashes still
+     * differ: data points are overwritten, children missing at the source are dropped, children missing here are
+     * fetched in one batch, and differing children form the next round. Batches are split into requests of at most
+     * {@value #MAX_BATCH} positions.
+     */
+    public Report pull(Transport<T> source) throws IOException {
+        int roundTrips = 1, expanded = 0, shipped = 0;
+        final long rootHash = source.rootHash();
+        final var root = tree.root();
+        if (rootHash == tree.hashOf(root)) return new Report(roundTrips, expanded, shipped);
+        if (rootHash == tree.hashOf(null) || root == null) {
+            final var subtree = rootHash == tree.hashOf(null) ? null : source.fetch(List.of("")).get(0);
+            if (subtree != null) {
+                roundTrips++;
+                shipped += subtree.data.length;
+            }
+            graft(null, true, subtree);
+            return new Report(roundTrips, expanded, shipped);
+        }
+        var paths = new ArrayList<>(List.of(""));
+        var nodes = new ArrayList<>(List.of(root));
+        while (!paths.isEmpty()) {
+            final var digests = new ArrayList<Digest<T>>(paths.size());
+            for (int from = 0; from < paths.size(); from += MAX_BATCH, roundTrips++) {
+                digests.addAll(source.expand(paths.subList(from, Math.min(paths.size(), from + MAX_BATCH))));
+            }
+            expanded += digests.size();
+            final var nextPaths   = new ArrayList<String>();
+            final var nextNodes   = new ArrayList<BinaryTree.BinaryTreeNode<T>>();
+            final var fetchPaths  = new ArrayList<String>();
+            final var fetchSlots  = new ArrayList<BinaryTree.BinaryTreeNode<T>>();
+            final var fetchLefts  = new ArrayList<Boolean>();
+            for (int i = 0; i < digests.size(); i++) {
+                final var d = digests.get(i);
+                final var n = nodes.get(i);
+                if (!Objects.equals(n.data, d.data)) tree.set(n, d.data);
+                for (final boolean left : new boolean[] { true, false }) {
+                    final var child = tree.child(n, left);
+                    final long hash = left ? d.leftHash : d.rightHash;
+                    if (hash == tree.hashOf(child)) continue;
+                    final var path = paths.get(i) + (left ? 'L' : 'R');
+                    if (hash == tree.hashOf(null)) {
+                        graft(n, left, null);
+                    } else if (child == null) {
+                        fetchPaths.add(path);
+                        fetchSlots.add(n);
+                        fetchLefts.add(left);
+                    } else {
+                        nextPaths.add(path);
+                        nextNodes.add(child);
+                    }
+                }
+            }
+            if (!fetchPaths.isEmpty()) {
+                final var subtrees = new ArrayList<Subtree<T>>(fetchPaths.size());
+                for (int from = 0; from < fetchPaths.size(); from += MAX_BATCH, roundTrips++) {
+                    subtrees.addAll(source.fetch(fetchPaths.subList(from, Math.min(fetchPaths.size(), from + MAX_BATCH))));
+                }
+                for (int i = 0; i < subtrees.size(); i++) {
+                    shipped += subtrees.get(i).data.length;
+                    graft(fetchSlots.get(i), fetchLefts.get(i), subtrees.get(i));
+                }
+            }
+            paths = nextPaths;
+            nodes = nextNodes;
+        }
+        return new Report(roundTrips, expanded, shipped);
+    }
+
+    private void graft(BinaryTree.BinaryTreeNode<T> parent, boolean left, Subtree<T> subtree) {
+        if (subtree == null) tree.graft(parent, left, new Object[0], new byte[0]);
+        else                 tree.graft(parent, left, subtree.data, subtree.shape);
+    }
+
+    /**
+     * Answers requests arriving on {@code socket} from this replica until the peer closes the connection.
+     * @throws StreamCorruptedException if the peer sends a malformed request or asks for a position with no node.
+     */
+    public void serve(Socket socket, BinaryTreeSerializer.ValueCodec<T> codec) throws IOException {
+        final var wire = new Wire<>(codec);
+        final var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        final var in  = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        while (true) {
+            final byte op;
+            try {
+                op = in.readByte();
+            } catch (EOFException e) {
+                return;
+            }
+            switch (op) {
+                case ROOT_HASH:
+                    out.writeLong(tree.hashOf(tree.root()));
+                    break;
+                case EXPAND:
+                    final var digests = expand(readPaths(in));
+                    out.writeInt(digests.size());
+                    for (final var d : digests) {
+                        wire.write(out, d.data);
+                        out.writeLong(d.leftHash);
+                        out.writeLong(d.rightHash);
+                    }
+                    break;
+                case FETCH:
+                    final var subtrees = fetch(readPaths(in));
+                    out.writeInt(subtrees.size());
+                    for (final var subtree : subtrees) wire.write(out, subtree);
+                    break;
+                default:
+                    throw new StreamCorruptedException("Unknown request " + op + ".");
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * @return the requested positions, each of which must hold a node in this replica.
+     */
+    private List<String> readPaths(DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        if (count < 0 || count > MAX_BATCH) throw new StreamCorruptedException("Bad position count " + count + ".");
+        final var paths = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            final var path = in.readUTF();
+            for (int j = 0; j < path.length(); j++) {
+                if (path.charAt(j) != 'L' && path.charAt(j) != 'R') throw new StreamCorruptedException("Bad position " + path + ".");
+            }
+            if (tree.nodeAt(path) == null) throw new StreamCorruptedException("No node at position " + path + ".");
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    /**
+     * @return a transport to a replica that {@link #serve(Socket, BinaryTreeSerializer.ValueCodec)}s on the other end
+     * of {@code socket} with the same codec; closing it closes the socket.
+     */
+    public static <T> SocketTransport<T> connect(Socket socket, BinaryTreeSerializer.ValueCodec<T> codec)
+            throws IOException {
+        return new SocketTransport<>(socket, codec);
+    }
+
+    public static final class SocketTransport<T> implements Transport<T>, Closeable {
+        private final Socket socket;
+        private final Wire<T> wire;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+
+        private SocketTransport(Socket socket, BinaryTreeSerializer.ValueCodec<T> codec) throws IOException {
+            this.socket = socket;
+            this.wire   = new Wire<>(codec);
+            this.out    = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.in     = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+
+        @Override
+        public long rootHash() throws IOException {
+            out.writeByte(ROOT_HASH);
+            out.flush();
+            return in.readLong();
+        }
+
+        @Override
+        public List<Digest<T>> expand(List<String> paths) throws IOException {
+            request(EXPAND, paths);
+            final var digests = new ArrayList<Digest<T>>(paths.size());
+            for (int i = 0; i < paths.size(); i++) digests.add(new Digest<>(wire.read(in), in.readLong(), in.readLong()));
+            return digests;
+        }
+
+        @Override
+        public List<Subtree<T>> fetch(List<String> paths) throws IOException {
+            request(FETCH, paths);
+            final var subtrees = new ArrayList<Subtree<T>>(paths.size());
+            for (int i = 0; i < paths.size(); i++) subtrees.add(wire.readSubtree(in));
+            return subtrees;
+        }
+
+        /**
+         * Sends the request and reads the reply count, which must match the number of positions asked for.
+         */
+        private void request(byte op, List<String> paths) throws IOException {
+            if (paths.size() > MAX_BATCH) throw new IllegalArgumentException("More than " + MAX_BATCH + " positions.");
+            out.writeByte(op);
+            out.writeInt(paths.size());
+            for (final var path : paths) out.writeUTF(path);
+            out.flush();
+            final int count = in.readInt();
+            if (count != paths.size()) throw new StreamCorruptedException(count + " replies to " + paths.size() + " positions.");
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * Encodes data points through the codec, fixed-width ones bare and the rest with a length prefix, and subtrees as
+     * a node count followed by a shape byte and a data point per node. Decoding grows its arrays as bytes actually
+     * arrive, so a bad count or length from the peer ends in an {@link EOFException} rather than a huge allocation,
+     * and a subtree whose shape bytes do not describe exactly one tree is rejected before it reaches the replica.
+     */
+    private static final class Wire<T> {
+        private static final int CHUNK = 1 << 12;
+        private final BinaryTreeSerializer.ValueCodec<T> codec;
+        private final int fixed;
+
+        private Wire(BinaryTreeSerializer.ValueCodec<T> codec) {
+            this.codec = Objects.requireNonNull(codec);
+            this.fixed = codec.fixedSize();
+        }
+
+        private void write(DataOutputStream out, T value) throws IOException {
+            final int size = fixed >= 0 ? fixed : codec.size(value);
+            final var buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            codec.write(value, buffer);
+            if (fixed < 0) out.writeInt(size);
+            out.write(buffer.array(), 0, size);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void write(DataOutputStream out, Subtree<T> subtree) throws IOException {
+            out.writeInt(subtree.data.length);
+            for (int i = 0; i < subtree.data.length; i++) {
+                out.writeByte(subtree.shape[i]);
+                write(out, (T) subtree.data[i]);
+            }
+        }
+
+        private T read(DataInputStream in) throws IOException {
+            final int size = fixed >= 0 ? fixed : in.readInt();
+            if (size < 0) throw new StreamCorruptedException("Negative value length " + size + ".");
+            final var bytes = in.readNBytes(size);
+            if (bytes.length < size) throw new EOFException("Value ends early.");
+            return codec.read(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), size);
+        }
+
+        private Subtree<T> readSubtree(DataInputStream in) throws IOException {
+            final int count = in.readInt();
+            if (count <= 0) throw new StreamCorruptedException("Bad subtree size " + count + ".");
+            var data  = new Object[Math.min(count, CHUNK)];
+            var shape = new byte[data.length];
+            long open = 1;                              // child slots announced but not yet filled.
+            for (int i = 0; i < count; i++) {
+                if (open == 0) throw new StreamCorruptedException("Subtree holds more than one tree.");
+                if (i == data.length) {
+                    final int capacity = (int) Math.min(count, 2L * i);
+                    data  = Arrays.copyOf(data,  capacity);
+                    shape = Arrays.copyOf(shape, capacity);
+                }
+                shape[i] = in.readByte();
+                if ((shape[i] & ~(LEFT | RIGHT)) != 0) throw new StreamCorruptedException("Bad shape byte " + shape[i] + ".");
+                open += Integer.bitCount(shape[i]) - 1;
+                data[i] = read(in);
+            }
+            if (open != 0) throw new StreamCorruptedException("The shape bytes end inside a subtree.");
+            return new Subtree<>(data, shape);
+        }
+    }
+}
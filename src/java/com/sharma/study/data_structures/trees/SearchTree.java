@@ -0,0 +1,293 @@
+package com.sharma.study.data_structures.trees;
+
+import java.util.*;
+
+/**
+ * Self-balancing (AVL) binary search tree ordered by a {@link Comparator}.
+ * Every node caches its subtree size, so rank and positional queries cost O(log n) like the searches.
+ * Data points that compare equal are stored once.
+ * @param <T> type of data stored in {@link SearchTree} nodes.
+ */
+public class SearchTree<T> implements Tree<T> {
+    private final Comparator<? super T> comparator;
+    private SearchTreeNode<T> root;
+
+    /**
+     * Orders data points by their natural ordering, which must be {@link Comparable}.
+     */
+    @SuppressWarnings("unchecked")
+    public SearchTree() {
+        this((Comparator<? super T>) Comparator.naturalOrder());
+    }
+
+    public SearchTree(Comparator<? super T> comparator) {
+        this.comparator = Objects.requireNonNull(comparator);
+    }
+
+    public SearchTree(Collection<T> collection, Comparator<? super T> comparator) {
+        this(comparator);
+        collection.forEach(this::add);
+    }
+
+    /**
+     * @return the number of nodes in this tree.
+     */
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Node is inserted in order and the tree is rebalanced on the way back up; duplicates are ignored.
+     * @param data inserts a new node with the specified data point into this tree.
+     */
+    @Override
+    public void add(T data) {
+        root = add(root, data);
+    }
+
+    private SearchTreeNode<T> add(SearchTreeNode<T> n, T data) {
+        if (n == null) return new SearchTreeNode<>(data);
+        final int cmp = comparator.compare(data, n.data);
+        if      (cmp < 0) n.left  = add(n.left,  data);
+        else if (cmp > 0) n.right = add(n.right, data);
+        else              return n;
+        return rebalance(n);
+    }
+
+    /**
+     * @return {@code true} if this tree contains no nodes, {@code false} otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Removes node with specified data point (if it exists) and rebalances the path back up to the root.
+     * @param data data point associated with node to remove.
+     */
+    @Override
+    public void remove(T data) {
+        root = remove(root, data);
+    }
+
+    private SearchTreeNode<T> remove(SearchTreeNode<T> n, T data) {
+        if (n == null) return null;
+        final int cmp = comparator.compare(data, n.data);
+        if      (cmp < 0) n.left  = remove(n.left,  data);
+        else if (cmp > 0) n.right = remove(n.right, data);
+        else {
+            if (n.left  == null) return n.right;
+            if (n.right == null) return n.left;
+            var successor = n.right;
+            while (successor.left != null) successor = successor.left;
+            n.data  = successor.data;
+            n.right = remove(n.right, successor.data);
+        }
+        return rebalance(n);
+    }
+
+    /**
+     * @param data data point associated with node to check for existence.
+     * @return {@code true} if node associated with the specified data point exists, {@code false} otherwise.
+     */
+    @Override
+    public boolean contains(T data) {
+        var n = root;
+        while (n != null) {
+            final int cmp = comparator.compare(data, n.data);
+            if (cmp == 0) return true;
+            n = cmp < 0 ? n.left : n.right;
+        }
+        return false;
+    }
+
+    /**
+     * @return the greatest data point less than or equal to {@code data}, or {@code null} if there is none.
+     */
+    public T floor(T data) {
+        T floor = null;
+        var n = root;
+        while (n != null) {
+            final int cmp = comparator.compare(data, n.data);
+            if (cmp == 0) return n.data;
+            if (cmp < 0) n = n.left;
+            else {
+                floor = n.data;
+                n = n.right;
+            }
+        }
+        return floor;
+    }
+
+    /**
+     * @return the least data point greater than or equal to {@code data}, or {@code null} if there is none.
+     */
+    public T ceiling(T data) {
+        T ceiling = null;
+        var n = root;
+        while (n != null) {
+            final int cmp = comparator.compare(data, n.data);
+            if (cmp == 0) return n.data;
+            if (cmp > 0) n = n.right;
+            else {
+                ceiling = n.data;
+                n = n.left;
+            }
+        }
+        return ceiling;
+    }
+
+    /**
+     * @return the number of data points strictly less than {@code data}.
+     */
+    public int rank(T data) {
+        int rank = 0;
+        var n = root;
+        while (n != null) {
+            final int cmp = comparator.compare(data, n.data);
+            if (cmp <= 0) n = n.left;
+            else {
+                rank += 1 + size(n.left);
+                n = n.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @param index position in ascending order.
+     * @return the data point with exactly {@code index} smaller data points in this tree.
+     */
+    public T get(int index) {
+        Objects.checkIndex(index, size());
+        var n = root;
+        while (true) {
+            final int leftSize = size(n.left);
+            if (index == leftSize) return n.data;
+            if (index < leftSize) n = n.left;
+            else {
+                index -= leftSize + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    /**
+     * Iterates lazily in ascending order, descending once to {@code from} and never visiting subtrees outside the range.
+     * @param from lowest data point to include.
+     * @param to   data point at which iteration stops (exclusive).
+     * @return the data points in {@code [from, to)}.
+     */
+    public Iterable<T> range(T from, T to) {
+        return () -> new RangeIterator(from, to);
+    }
+
+    private final class RangeIterator implements Iterator<T> {
+        private final ArrayDeque<SearchTreeNode<T>> stack = new ArrayDeque<>();
+        private final T to;
+
+        private RangeIterator(T from, T to) {
+            this.to = to;
+            var n = root;
+            while (n != null) {
+                if (comparator.compare(n.data, from) >= 0) {
+                    stack.push(n);
+                    n = n.left;     // go left, n is in range.
+                } else {
+                    n = n.right;    // skip n and its left subtree.
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty() && comparator.compare(stack.peek().data, to) < 0;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            final var n = stack.pop();
+            for (var c = n.right; c != null; c = c.left) stack.push(c);
+            return n.data;
+        }
+    }
+
+    private static <T> int size(SearchTreeNode<T> n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static <T> int height(SearchTreeNode<T> n) {
+        return n == null ? -1 : n.height;
+    }
+
+    private static <T> void update(SearchTreeNode<T> n) {
+        n.size   = 1 + size(n.left) + size(n.right);
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+    }
+
+    private static <T> SearchTreeNode<T> rebalance(SearchTreeNode<T> n) {
+        update(n);
+        final int balance = height(n.left) - height(n.right);
+        if (balance > 1) {
+            if (height(n.left.left) < height(n.left.right)) n.left = rotateLeft(n.left);    // left-right case.
+            return rotateRight(n);
+        }
+        if (balance < -1) {
+            if (height(n.right.right) < height(n.right.left)) n.right = rotateRight(n.right); // right-left case.
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private static <T> SearchTreeNode<T> rotateLeft(SearchTreeNode<T> n) {
+        final var r = n.right;
+        n.right = r.left;
+        r.left  = n;
+        update(n);
+        update(r);
+        return r;
+    }
+
+    private static <T> SearchTreeNode<T> rotateRight(SearchTreeNode<T> n) {
+        final var l = n.left;
+        n.left  = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    static class SearchTreeNode<T> {
+        private SearchTreeNode<T> left, right;
+        private int size = 1, height;
+        private T data;
+
+        SearchTreeNode(T data) {
+            this.data = data;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(data);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final var sb = new StringBuilder();
+        toString(root, "", sb, true);
+        return sb.toString();
+    }
+
+    private static <T> void toString(SearchTreeNode<T> n, String pre, StringBuilder sb, boolean isLeft) {
+        if (n == null) sb.append("Empty Tree.");
+        else {
+            if (n.right != null) toString(n.right, pre + (isLeft ? "│   " : "    "), sb, false);
+            sb.append(pre).append(isLeft ? "└── " : "┌── ").append(n).append("\n");
+            if (n.left  != null) toString(n.left,  pre + (isLeft ? "    " : "│   "), sb, true);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.sharma.study.data_structures.trees;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Checks that a malformed subtree from a peer is rejected without touching the replica. Run with the main classes on
+ * the class path; a failed check ends in an {@link AssertionError}.
+ */
+public class MerkleSyncTest {
+    private static final byte ROOT_HASH = 0, EXPAND = 1, FETCH = 2, LEFT = 1, RIGHT = 2;     // as on the wire.
+
+    public static void main(String[] args) throws Exception {
+        graftRejectsIncompleteShape();
+        pullRejectsIncompleteSubtree();
+        System.out.println("MerkleSyncTest passed.");
+    }
+
+    /**
+     * A shape announcing two children but carrying one leaf must fail before the old subtree is detached.
+     */
+    private static void graftRejectsIncompleteShape() {
+        final var tree = new BinaryTree<>(List.of(1, 2, 3, 4, 5, 6, 7), true);
+        final var before = state(tree);
+        try {
+            tree.graft(tree.root(), true, new Object[] { 10, 11 }, new byte[] { LEFT | RIGHT, 0 });
+            throw new AssertionError("graft accepted an incomplete shape.");
+        } catch (IllegalStateException expected) {
+            // the replica must be as it was.
+        }
+        check(state(tree).equals(before), "graft changed the tree before rejecting the shape.");
+        for (int i = 1; i <= 7; i++) check(tree.contains(i), "graft dropped " + i + " from the index.");
+    }
+
+    /**
+     * A peer that answers a fetch with a subtree ending inside a child slot must make the pull fail with
+     * {@link StreamCorruptedException} and leave the replica unchanged.
+     */
+    private static void pullRejectsIncompleteSubtree() throws Exception {
+        final var replica = new BinaryTree<>(List.of(5), true);
+        final long empty = replica.hashOf(null);
+        final var before = state(replica);
+        try (var server = new ServerSocket(0)) {
+            final var peer = new Thread(() -> {
+                try (var socket = server.accept()) {
+                    answer(socket, empty);
+                } catch (IOException e) {
+                    // the replica hangs up once it rejects the reply.
+                }
+            });
+            peer.start();
+            try (var transport = MerkleSync.connect(new Socket("localhost", server.getLocalPort()),
+                                                    BinaryTreeSerializer.INTEGERS)) {
+                new MerkleSync<>(replica).pull(transport);
+                throw new AssertionError("pull accepted an incomplete subtree.");
+            } catch (StreamCorruptedException expected) {
+                // the replica must be as it was.
+            }
+            peer.join();
+        }
+        check(state(replica).equals(before), "pull changed the replica before rejecting the subtree.");
+        check(replica.contains(5), "pull dropped 5 from the index.");
+    }
+
+    /**
+     * Plays a source whose root holds 5 and has a left child the replica lacks, then ships that child as a node that
+     * announces a left child of its own which never follows.
+     */
+    private static void answer(Socket socket, long empty) throws IOException {
+        final var in  = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        while (true) {
+            final byte op = in.readByte();
+            if (op == ROOT_HASH) {
+                out.writeLong(empty + 1);
+            } else {
+                final int count = in.readInt();
+                for (int i = 0; i < count; i++) in.readUTF();
+                out.writeInt(count);
+                if (op == EXPAND) {
+                    writeInt(out, 5);
+                    out.writeLong(empty + 1);
+                    out.writeLong(empty);
+                } else if (op == FETCH) {
+                    out.writeInt(1);
+                    out.writeByte(LEFT);
+                    writeInt(out, 6);
+                }
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes an {@link BinaryTreeSerializer#INTEGERS} value, which is little-endian.
+     */
+    private static void writeInt(DataOutputStream out, int value) throws IOException {
+        out.writeInt(Integer.reverseBytes(value));
+    }
+
+    /**
+     * @return the drawing, size, height, root hash and in-order data points of {@code tree}.
+     */
+    private static List<Object> state(BinaryTree<Integer> tree) {
+        return List.of(tree.toString(), tree.size(), tree.height(), tree.hashOf(tree.root()),
+                tree.stream().collect(Collectors.toList()));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}